@@ -0,0 +1,130 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Starts several JVMs that all call SimpleDataStore.tryBook() on the same
+ * few slots in one shared clinic_data, then checks that no slot ended up
+ * with two active appointments.
+ *
+ * Usage: DoubleBookingStressTest [processes] [bookings per process] [slots]
+ *
+ * Defaults are 8 processes, 200 bookings each and 20 slots, so almost
+ * every attempt races others for its slot. Run it from an empty
+ * directory; -Dclinic.* options are passed on to the workers. Exits with
+ * status 1 if a slot is double-booked or the workers' BOOKED count does
+ * not match what the files hold.
+ */
+public final class DoubleBookingStressTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 7);
+    private static final int SLOTS_PER_DAY = 32; // 08:00 to 15:45, every 15 minutes
+    private static final long START_DELAY_MILLIS = 3000; // for the workers' JVMs to come up
+
+    private DoubleBookingStressTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("worker")) {
+            work(Long.parseLong(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), args[4]);
+            System.exit(0);
+        }
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int bookings = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        if (new File("clinic_data").exists()) {
+            System.err.println("clinic_data already exists; run from an empty directory");
+            System.exit(2);
+        }
+
+        // One worker with nothing to book creates clinic_data before the others race for it
+        run(List.of(start(0, 0, slots, "setup")));
+        long startAt = System.currentTimeMillis() + START_DELAY_MILLIS;
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            workers.add(start(startAt, bookings, slots, "w" + i));
+        }
+        long booked = run(workers);
+
+        // Only now read the files, after every worker has exited
+        Map<String, Integer> active = new HashMap<>();
+        for (SimpleAppointment appointment : SimpleDataStore.getInstance().getAllAppointments()) {
+            if (!appointment.getStatus().equals("cancelled")) {
+                active.merge(appointment.getDoctorName() + " " + appointment.getAppointmentDate() + " "
+                        + appointment.getAppointmentTime(), 1, Integer::sum);
+            }
+        }
+        long stored = active.values().stream().mapToLong(Integer::longValue).sum();
+        long doubleBooked = active.values().stream().filter(count -> count > 1).count();
+        System.out.printf("%d processes, %d attempts on %d slots: %d booked, %d stored, %d double-booked slots%n",
+                processes, (long) processes * bookings, slots, booked, stored, doubleBooked);
+        System.exit(doubleBooked == 0 && booked == stored ? 0 : 1);
+    }
+
+    private static Process start(long startAt, int bookings, int slots, String name) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String property : System.getProperties().stringPropertyNames()) {
+            if (property.startsWith("clinic.")) {
+                command.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        command.add(DoubleBookingStressTest.class.getName());
+        command.add("worker");
+        command.add(String.valueOf(startAt));
+        command.add(String.valueOf(bookings));
+        command.add(String.valueOf(slots));
+        command.add(name);
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    // Waits for the workers, echoing their output, and adds up what they booked
+    private static long run(List<Process> workers) throws IOException, InterruptedException {
+        long booked = 0;
+        for (Process worker : workers) {
+            try (BufferedReader output = new BufferedReader(
+                    new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    System.out.println(line);
+                    if (line.contains(" booked ")) {
+                        booked += Long.parseLong(line.split(" booked ")[1].split(" ")[0]);
+                    }
+                }
+            }
+            if (worker.waitFor() != 0) {
+                throw new IllegalStateException("A worker exited with status " + worker.exitValue());
+            }
+        }
+        return booked;
+    }
+
+    private static void work(long startAt, int bookings, int slots, String name) throws InterruptedException {
+        SimpleDataStore store = SimpleDataStore.getInstance();
+        String doctor = store.getAllDoctors().get(0);
+        Random random = new Random(name.hashCode());
+        Thread.sleep(Math.max(0, startAt - System.currentTimeMillis()));
+        int[] results = new int[BookingResult.values().length];
+        for (int i = 0; i < bookings; i++) {
+            int slot = random.nextInt(slots);
+            int minute = slot % SLOTS_PER_DAY * 15;
+            String time = String.format("%02d:%02d", 8 + minute / 60, minute % 60);
+            BookingResult result = store.tryBook(name + " patient " + i, doctor,
+                    FIRST_DAY.plusDays(slot / SLOTS_PER_DAY), time);
+            results[result.ordinal()]++;
+        }
+        System.out.printf("%s: booked %d conflict %d failed %d%n", name, results[BookingResult.BOOKED.ordinal()],
+                results[BookingResult.CONFLICT.ordinal()], results[BookingResult.FAILED.ordinal()]);
+    }
+}
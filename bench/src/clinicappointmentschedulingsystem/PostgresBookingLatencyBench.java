@@ -0,0 +1,85 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency of one PostgreSQL booking as two calls, hasConflict() then
+ * saveAppointment(), against bookIfFree(), the single
+ * INSERT ... ON CONFLICT DO NOTHING RETURNING id.
+ *
+ * Usage: PostgresBookingLatencyBench [bookings]
+ *
+ * Each way books its own distinct slots, far in the future, after a
+ * warm-up, and prints the 50th, 90th and 99th percentile. It writes real
+ * rows, so point -Dclinic.db.config at a scratch database. Leave
+ * -Dclinic.conflictFilter off: the filter would answer some conflict
+ * checks without a round trip.
+ */
+public final class PostgresBookingLatencyBench {
+    private static final int WARMUP = 200;
+    private static final int SLOTS_PER_DAY = 32; // 08:00 to 15:45, every 15 minutes
+
+    private interface Booking {
+        boolean book(String patient, String doctor, LocalDate date, String time);
+    }
+
+    private PostgresBookingLatencyBench() {
+    }
+
+    public static void main(String[] args) {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        PostgreSQLManager postgres = PostgreSQLManager.getInstance();
+        if (!postgres.testConnection()) {
+            System.err.println("PostgreSQL is not reachable or its schema is not current");
+            System.exit(2);
+        }
+        List<String> doctors = postgres.getAllDoctors();
+        // A random stretch of the 23rd century, so runs do not collide with each other
+        LocalDate firstDay = LocalDate.of(2200, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(30000));
+        int days = (WARMUP + bookings) / (doctors.size() * SLOTS_PER_DAY) + 1;
+
+        long[] twoCalls = measure(doctors, firstDay, bookings, (patient, doctor, date, time) ->
+                !postgres.hasConflict(doctor, date, time) && postgres.saveAppointment(patient, doctor, date, time));
+        long[] oneCall = measure(doctors, firstDay.plusDays(days), bookings, (patient, doctor, date, time) ->
+                postgres.bookIfFree(patient, doctor, date, time) == BookingResult.BOOKED);
+        report("hasConflict + saveAppointment", twoCalls);
+        report("bookIfFree", oneCall);
+        System.out.printf("median ratio: %.2f%n", (double) percentile(twoCalls, 50) / percentile(oneCall, 50));
+        System.exit(0);
+    }
+
+    // Nanoseconds per booking, sorted, leaving out the warm-up
+    private static long[] measure(List<String> doctors, LocalDate firstDay, int bookings, Booking booking) {
+        long[] latencies = new long[bookings];
+        int failed = 0;
+        for (int i = 0; i < WARMUP + bookings; i++) {
+            int minute = i / doctors.size() % SLOTS_PER_DAY * 15;
+            String time = String.format("%02d:%02d", 8 + minute / 60, minute % 60);
+            LocalDate date = firstDay.plusDays(i / (doctors.size() * SLOTS_PER_DAY));
+            long start = System.nanoTime();
+            boolean booked = booking.book("Latency " + i, doctors.get(i % doctors.size()), date, time);
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP) {
+                latencies[i - WARMUP] = elapsed;
+                failed += booked ? 0 : 1;
+            }
+        }
+        if (failed > 0) {
+            System.err.println(failed + " bookings did not go in; the slots were expected to be free");
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String label, long[] latencies) {
+        System.out.printf("%-30s p50 %6.2f ms  p90 %6.2f ms  p99 %6.2f ms%n", label,
+                percentile(latencies, 50) / 1e6, percentile(latencies, 90) / 1e6, percentile(latencies, 99) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+}
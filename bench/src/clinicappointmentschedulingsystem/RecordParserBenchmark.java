@@ -0,0 +1,106 @@
+package clinicappointmentschedulingsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading appointment record lines the way SimpleDataStore used to (split
+ * on '|', substrings, LocalDate.parse, a SimpleAppointment per line)
+ * against AppointmentRecordView, both for building appointments and for
+ * predicate-only scans such as a conflict check.
+ *
+ * The split variants start from lines already decoded to Strings, which
+ * leaves out a cost the old code paid, so the gap is if anything larger
+ * in the application. Run with -prof gc to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordParserBenchmark {
+    private static final String[] DOCTORS = {"Dr. Smith", "Dr. Johnson", "Dr. Williams", "Dr. Brown", "Dr. Davis"};
+    private static final String[] STATUSES = {"scheduled", "scheduled", "scheduled", "completed", "cancelled"};
+
+    @Param({"10000"})
+    public int records;
+
+    private String[] text;
+    private byte[][] bytes;
+    private final AppointmentRecordView view = new AppointmentRecordView();
+    // The slot the scans look for
+    private final String doctor = DOCTORS[2];
+    private final LocalDate date = LocalDate.of(2026, 1, 20);
+    private final String time = "10:30";
+
+    @Setup
+    public void setUp() {
+        text = new String[records];
+        bytes = new byte[records][];
+        for (int i = 0; i < records; i++) {
+            int minute = i % 32 * 15;
+            SimpleAppointment appointment = new SimpleAppointment(i + 1, "Patient " + i, DOCTORS[i % DOCTORS.length],
+                    LocalDate.of(2026, 1, 1).plusDays(i / 160),
+                    String.format("%02d:%02d", 8 + minute / 60, minute % 60), STATUSES[i % STATUSES.length]);
+            text[i] = AppointmentRecords.format(appointment, "2026-01-01T09:00:00.123");
+            bytes[i] = text[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void splitParse(Blackhole blackhole) {
+        for (String line : text) {
+            String[] parts = line.split("\\|");
+            blackhole.consume(new SimpleAppointment(Integer.parseInt(parts[0]), parts[1], parts[2],
+                    LocalDate.parse(parts[3]), parts[4], parts[5]));
+        }
+    }
+
+    @Benchmark
+    public void recordViewParse(Blackhole blackhole) {
+        for (byte[] line : bytes) {
+            if (view.parse(line, line.length)) {
+                blackhole.consume(view.toAppointment());
+            }
+        }
+    }
+
+    @Benchmark
+    public int splitScan() {
+        int matches = 0;
+        for (String line : text) {
+            String[] parts = line.split("\\|");
+            if (parts[2].equals(doctor) && LocalDate.parse(parts[3]).equals(date)
+                    && parts[4].equals(time) && !parts[5].equals("cancelled")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int recordViewScan() {
+        int matches = 0;
+        for (byte[] line : bytes) {
+            if (view.parse(line, line.length) && view.isDoctor(doctor) && view.isOn(date)
+                    && view.isTime(time) && !view.hasStatus("cancelled")) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
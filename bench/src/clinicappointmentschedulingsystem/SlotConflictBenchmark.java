@@ -0,0 +1,130 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * SlotReservationTable against the conflict check SimpleDataStore did
+ * before it, a scan of every appointment for one with the same doctor,
+ * date and time that is not cancelled.
+ *
+ * The scan runs over appointments already in memory; the old
+ * hasConflict() also re-read the file on every call, so the real gap was
+ * wider. claimAndRelease books and frees a slot with the table's CAS
+ * loop, with every thread working the same few days. Run main() for
+ * 1, 8 and 32 threads; any other arguments go to JMH.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotConflictBenchmark {
+    private static final String[] DOCTORS = {"Dr. Smith", "Dr. Johnson", "Dr. Williams", "Dr. Brown", "Dr. Davis"};
+    private static final int SLOTS_PER_DAY = 32; // 08:00 to 15:45, every 15 minutes
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 1);
+    private static final int QUERIES = 1024;
+    private static final int[] THREADS = {1, 8, 32};
+
+    @Param({"10000"})
+    public int appointments;
+
+    private final SlotReservationTable table = new SlotReservationTable();
+    private final List<SimpleAppointment> list = new ArrayList<>();
+    // Every other query is for a booked slot
+    private final String[] doctors = new String[QUERIES];
+    private final LocalDate[] dates = new LocalDate[QUERIES];
+    private final String[] times = new String[QUERIES];
+
+    /** Where each thread is in the query list. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 1) % QUERIES;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < appointments; i++) {
+            String doctor = DOCTORS[i % DOCTORS.length];
+            LocalDate date = FIRST_DAY.plusDays(i / (DOCTORS.length * SLOTS_PER_DAY));
+            String time = time(i / DOCTORS.length % SLOTS_PER_DAY);
+            table.claim(doctor, date, time);
+            list.add(new SimpleAppointment(i + 1, "Patient " + i, doctor, date, time, "scheduled"));
+        }
+        int days = Math.max(1, appointments / (DOCTORS.length * SLOTS_PER_DAY));
+        for (int q = 0; q < QUERIES; q++) {
+            doctors[q] = DOCTORS[q % DOCTORS.length];
+            dates[q] = FIRST_DAY.plusDays(q % 2 == 0 ? q % days : days + q % 30);
+            times[q] = time(q % SLOTS_PER_DAY);
+        }
+    }
+
+    @Benchmark
+    public boolean reservationTable(Cursor cursor) {
+        int q = cursor.next();
+        return table.isReserved(doctors[q], dates[q], times[q]);
+    }
+
+    @Benchmark
+    public boolean listScan(Cursor cursor) {
+        int q = cursor.next();
+        String doctor = doctors[q];
+        LocalDate date = dates[q];
+        String time = times[q];
+        return list.stream().anyMatch(apt -> apt.getDoctorName().equals(doctor)
+                && apt.getAppointmentDate().equals(date)
+                && apt.getAppointmentTime().equals(time)
+                && !"cancelled".equals(apt.getStatus()));
+    }
+
+    @Benchmark
+    public boolean claimAndRelease(Cursor cursor) {
+        int q = cursor.next();
+        // Days after the booked ones, so the claims contend with each other only
+        LocalDate date = dates[q].plusDays(3650);
+        boolean claimed = table.claim(doctors[q], date, times[q]);
+        if (claimed) {
+            table.release(doctors[q], date, times[q]);
+        }
+        return claimed;
+    }
+
+    private static String time(int slot) {
+        int minute = slot * 15;
+        return String.format("%02d:%02d", 8 + minute / 60, minute % 60);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder()
+                    .parent(new CommandLineOptions(args))
+                    .include(SlotConflictBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
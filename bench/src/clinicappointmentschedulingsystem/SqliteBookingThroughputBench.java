@@ -0,0 +1,118 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SQLite booking throughput before and after DatabaseManager kept its
+ * connections open.
+ *
+ * Usage: SqliteBookingThroughputBench [threads] [bookings per thread]
+ *
+ * before books into bench-before.db the way DatabaseManager used to: a
+ * new connection with SQLite's default settings for the conflict check
+ * and another for the insert. after books into clinic.db through
+ * DatabaseManager.tryBook(), i.e. the read pool, the single writer
+ * thread and the WAL/synchronous=NORMAL/mmap pragmas. Both get the same
+ * schema and book the same distinct slots. Run it from an empty
+ * directory.
+ */
+public final class SqliteBookingThroughputBench {
+    private static final String BEFORE_URL = "jdbc:sqlite:bench-before.db";
+    private static final String[] DOCTORS = {"Dr. Smith", "Dr. Johnson", "Dr. Williams", "Dr. Brown", "Dr. Davis"};
+    private static final int SLOTS_PER_DAY = 32; // 08:00 to 15:45, every 15 minutes
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 7);
+
+    private interface Booking {
+        boolean book(String patient, String doctor, LocalDate date, String time);
+    }
+
+    private SqliteBookingThroughputBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int bookings = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        if (new File("clinic.db").exists() || new File("bench-before.db").exists()) {
+            System.err.println("clinic.db or bench-before.db already exists; run from an empty directory");
+            System.exit(2);
+        }
+        try (Connection conn = DriverManager.getConnection(BEFORE_URL)) {
+            SchemaMigrator.SQLITE.migrate(conn);
+        }
+        run("before", threads, bookings, SqliteBookingThroughputBench::bookLikeBefore);
+        DatabaseManager manager = DatabaseManager.getInstance();
+        run("after", threads, bookings,
+                (patient, doctor, date, time) -> manager.tryBook(patient, doctor, date, time) == BookingResult.BOOKED);
+        System.exit(0);
+    }
+
+    private static void run(String label, int threads, int bookings, Booking booking) throws InterruptedException {
+        AtomicInteger booked = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t * bookings;
+            Thread worker = new Thread(() -> {
+                for (int i = first; i < first + bookings; i++) {
+                    int minute = i / DOCTORS.length % SLOTS_PER_DAY * 15;
+                    String time = String.format("%02d:%02d", 8 + minute / 60, minute % 60);
+                    LocalDate date = FIRST_DAY.plusDays(i / (DOCTORS.length * SLOTS_PER_DAY));
+                    if (booking.book("Patient " + i, DOCTORS[i % DOCTORS.length], date, time)) {
+                        booked.incrementAndGet();
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int attempts = threads * bookings;
+        System.out.printf("%s: %d of %d booked with %d threads in %.2f s, %.0f bookings/s%n",
+                label, booked.get(), attempts, threads, seconds, booked.get() / seconds);
+    }
+
+    // DatabaseManager.hasConflict() and saveAppointment() as they were: each
+    // opens its own connection and the two run as separate transactions
+    private static boolean bookLikeBefore(String patient, String doctor, LocalDate date, String time) {
+        String check = "SELECT COUNT(*) FROM appointments WHERE doctor_name = ? AND appointment_date = ? "
+                + "AND appointment_time = ? AND status != 'cancelled'";
+        try (Connection conn = DriverManager.getConnection(BEFORE_URL);
+             PreparedStatement stmt = conn.prepareStatement(check)) {
+            stmt.setString(1, doctor);
+            stmt.setString(2, date.toString());
+            stmt.setString(3, time);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next() && rs.getInt(1) > 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking conflict: " + e.getMessage());
+            return false;
+        }
+        String insert = "INSERT INTO appointments (patient_name, doctor_name, appointment_date, appointment_time) "
+                + "VALUES (?, ?, ?, ?)";
+        try (Connection conn = DriverManager.getConnection(BEFORE_URL);
+             PreparedStatement stmt = conn.prepareStatement(insert)) {
+            stmt.setString(1, patient);
+            stmt.setString(2, doctor);
+            stmt.setString(3, date.toString());
+            stmt.setString(4, time);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error saving appointment: " + e.getMessage());
+            return false;
+        }
+    }
+}
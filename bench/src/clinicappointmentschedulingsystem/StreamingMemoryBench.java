@@ -0,0 +1,133 @@
+package clinicappointmentschedulingsystem;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Peak heap while walking every appointment once, through
+ * getAllAppointments() (list) or streamAppointments() (stream).
+ *
+ * Usage: StreamingMemoryBench &lt;file|sqlite|postgresql&gt; &lt;seed|list|stream&gt; [count]
+ *
+ * seed books count appointments (default 1,000,000) into the backend;
+ * list and stream each walk them and print the peak heap above what was
+ * in use beforehand. Run each mode in its own JVM so one does not warm
+ * the heap for the other. The file store keeps its own index in memory
+ * from startup, so its figures include that in both modes.
+ */
+public final class StreamingMemoryBench {
+    private static final int DEFAULT_COUNT = 1_000_000;
+    private static final int BATCH = 1000;
+    private static final int SLOTS_PER_DAY = 32; // 08:00 to 15:45, every 15 minutes
+    private static final LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+
+    private StreamingMemoryBench() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: StreamingMemoryBench <file|sqlite|postgresql> <seed|list|stream> [count]");
+            System.exit(2);
+        }
+        AppointmentRepository repository = AppointmentRepositories.open(args[0]);
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_COUNT;
+        switch (args[1]) {
+            case "seed":
+                seed(repository, count);
+                break;
+            case "list":
+                measure("list", () -> {
+                    long checksum = 0;
+                    for (Appointment appointment : repository.getAllAppointments()) {
+                        checksum += visit(appointment);
+                    }
+                    return checksum;
+                });
+                break;
+            case "stream":
+                measure("stream", () -> {
+                    try (Stream<Appointment> appointments = repository.streamAppointments(a -> true, Long.MAX_VALUE)) {
+                        return appointments.mapToLong(StreamingMemoryBench::visit).sum();
+                    }
+                });
+                break;
+            default:
+                System.err.println("Unknown mode " + args[1]);
+                System.exit(2);
+        }
+        System.exit(0);
+    }
+
+    private interface Walk {
+        long run();
+    }
+
+    // Books count appointments on distinct slots, in batches
+    private static void seed(AppointmentRepository repository, int count) {
+        List<String> doctors = repository.getAllDoctors();
+        long start = System.nanoTime();
+        int booked = 0;
+        for (int first = 0; first < count; first += BATCH) {
+            List<AppointmentRequest> batch = new ArrayList<>(BATCH);
+            for (int i = first; i < Math.min(first + BATCH, count); i++) {
+                int doctor = i % doctors.size();
+                int slot = (i / doctors.size()) % SLOTS_PER_DAY;
+                int day = i / (doctors.size() * SLOTS_PER_DAY);
+                String time = String.format("%02d:%02d", 8 + slot / 4, slot % 4 * 15);
+                batch.add(new AppointmentRequest("Patient " + i, doctors.get(doctor), FIRST_DAY.plusDays(day), time));
+            }
+            for (BookingResult result : repository.saveAppointments(batch)) {
+                if (result == BookingResult.BOOKED) {
+                    booked++;
+                }
+            }
+        }
+        System.out.printf("Seeded %d of %d appointments into %s in %d s%n", booked, count,
+                repository.getBackendName(), (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    // Roughly what rendering a row touches
+    private static long visit(Appointment appointment) {
+        return appointment.getId() + appointment.getPatientName().length() + appointment.getAppointmentTime().length();
+    }
+
+    private static void measure(String mode, Walk walk) {
+        System.gc();
+        long before = heapUsed();
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+        long start = System.nanoTime();
+        long checksum = walk.run();
+        long millis = (System.nanoTime() - start) / 1_000_000L;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%s: peak heap %d MB above %d MB in use before, %d ms (checksum %d)%n",
+                mode, (peak - before) >> 20, before >> 20, millis, checksum);
+    }
+
+    private static long heapUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+}
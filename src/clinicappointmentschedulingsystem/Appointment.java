@@ -5,40 +5,67 @@ import java.time.LocalDate;
 public class Appointment {
     private int id;
     private String patientName;
-    private String doctorName;
+    // Codes in SymbolTable.doctors() and SymbolTable.statuses()
+    private int doctorCode;
     private LocalDate appointmentDate;
     private String appointmentTime;
-    private String status;
+    private int statusCode;
+    // Keys in the doctors and patients tables; 0 from backends without them
+    private int doctorId;
+    private int patientId;
+    // As booked; null from backends that do not keep them
+    private String patientPhone;
+    private String notes;
     
     public Appointment(int id, String patientName, String doctorName, 
                       LocalDate appointmentDate, String appointmentTime, String status) {
         this.id = id;
         this.patientName = patientName;
-        this.doctorName = doctorName;
+        this.doctorCode = SymbolTable.doctors().intern(doctorName);
         this.appointmentDate = appointmentDate;
         this.appointmentTime = appointmentTime;
-        this.status = status;
+        this.statusCode = SymbolTable.statuses().intern(status);
+    }
+    
+    public Appointment(int id, String patientName, int doctorCode,
+                      LocalDate appointmentDate, String appointmentTime, int statusCode) {
+        this.id = id;
+        this.patientName = patientName;
+        this.doctorCode = doctorCode;
+        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
+        this.statusCode = statusCode;
     }
     
     // Getters
     public int getId() { return id; }
     public String getPatientName() { return patientName; }
-    public String getDoctorName() { return doctorName; }
+    public String getDoctorName() { return SymbolTable.doctors().nameOf(doctorCode); }
+    public int getDoctorCode() { return doctorCode; }
     public LocalDate getAppointmentDate() { return appointmentDate; }
     public String getAppointmentTime() { return appointmentTime; }
-    public String getStatus() { return status; }
+    public String getStatus() { return SymbolTable.statuses().nameOf(statusCode); }
+    public int getStatusCode() { return statusCode; }
+    public int getDoctorId() { return doctorId; }
+    public int getPatientId() { return patientId; }
+    public String getPatientPhone() { return patientPhone; }
+    public String getNotes() { return notes; }
     
     // Setters
     public void setId(int id) { this.id = id; }
     public void setPatientName(String patientName) { this.patientName = patientName; }
-    public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
+    public void setDoctorName(String doctorName) { this.doctorCode = SymbolTable.doctors().intern(doctorName); }
     public void setAppointmentDate(LocalDate appointmentDate) { this.appointmentDate = appointmentDate; }
     public void setAppointmentTime(String appointmentTime) { this.appointmentTime = appointmentTime; }
-    public void setStatus(String status) { this.status = status; }
+    public void setStatus(String status) { this.statusCode = SymbolTable.statuses().intern(status); }
+    public void setDoctorId(int doctorId) { this.doctorId = doctorId; }
+    public void setPatientId(int patientId) { this.patientId = patientId; }
+    public void setPatientPhone(String patientPhone) { this.patientPhone = patientPhone; }
+    public void setNotes(String notes) { this.notes = notes; }
     
     @Override
     public String toString() {
         return String.format("✅ Appointment #%d\nPatient: %s\nDoctor: %s\nDate: %s\nTime: %s\nStatus: %s\n",
-                id, patientName, doctorName, appointmentDate, appointmentTime, status);
+                id, patientName, getDoctorName(), appointmentDate, appointmentTime, getStatus());
     }
 }
\ No newline at end of file
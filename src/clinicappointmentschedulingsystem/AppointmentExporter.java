@@ -0,0 +1,182 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Writes the appointments in a date range to a CSV or NDJSON file.
+ *
+ * Rows come from AppointmentRepository.forEachAppointmentInRange() and
+ * are encoded into one reused buffer that goes to a FileChannel whenever
+ * it fills, so memory use is the same for a day or for years of the whole
+ * clinic. The file is written under a temporary name and moved into place
+ * at the end; a failed export leaves any earlier file alone.
+ */
+public final class AppointmentExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "id,appointment_date,appointment_time,doctor_name,patient_name,status,doctor_id,patient_id\n";
+
+    public enum Format {
+        /** One header line, then one line per appointment. */
+        CSV,
+        /** One JSON object per line. */
+        NDJSON
+    }
+
+    private final FileChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder(256);
+
+    private AppointmentExporter(FileChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    /**
+     * Exports the appointments dated between startDate and endDate
+     * inclusive to file and returns how many there were, or -1 if the
+     * export failed.
+     */
+    public static long export(AppointmentRepository repository, LocalDate startDate, LocalDate endDate,
+                              File file, Format format) {
+        File partial = new File(file.getPath() + ".part");
+        long[] count = {0};
+        try {
+            boolean complete;
+            try (FileChannel channel = FileChannel.open(partial.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                AppointmentExporter exporter = new AppointmentExporter(channel, format);
+                if (format == Format.CSV) {
+                    exporter.write(CSV_HEADER);
+                }
+                complete = repository.forEachAppointmentInRange(startDate, endDate, appointment -> {
+                    exporter.append(appointment);
+                    count[0]++;
+                });
+                exporter.flush();
+                channel.force(false);
+            }
+            if (!complete) {
+                Files.deleteIfExists(partial.toPath());
+                return -1;
+            }
+            Files.move(partial.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count[0];
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error exporting appointments to " + file + ": " + e.getMessage());
+            partial.delete();
+            return -1;
+        }
+    }
+
+    // Called from the repository's callback, which cannot throw IOException
+    private void append(Appointment appointment) {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append(appointment.getId()).append(',')
+                    .append(appointment.getAppointmentDate()).append(',');
+            csv(appointment.getAppointmentTime()).append(',');
+            csv(appointment.getDoctorName()).append(',');
+            csv(appointment.getPatientName()).append(',');
+            csv(appointment.getStatus()).append(',');
+            key(appointment.getDoctorId()).append(',');
+            key(appointment.getPatientId()).append('\n');
+        } else {
+            line.append("{\"id\":").append(appointment.getId())
+                    .append(",\"appointment_date\":\"").append(appointment.getAppointmentDate()).append('"');
+            json("appointment_time", appointment.getAppointmentTime());
+            json("doctor_name", appointment.getDoctorName());
+            json("patient_name", appointment.getPatientName());
+            json("status", appointment.getStatus());
+            line.append(",\"doctor_id\":");
+            key(appointment.getDoctorId());
+            line.append(",\"patient_id\":");
+            key(appointment.getPatientId()).append("}\n");
+        }
+        try {
+            write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Quoted only when needed, with quotes doubled
+    private StringBuilder csv(String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private void json(String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    // 0 means the backend has no such key: empty in CSV, null in JSON
+    private StringBuilder key(int id) {
+        if (id != 0) {
+            return line.append(id);
+        }
+        return format == Format.CSV ? line : line.append("null");
+    }
+
+    private void write(CharSequence text) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group-commit journal for appending records to text files.
+ *
+ * Callers enqueue lines; a single writer thread collects up to batchSize of
+ * them (waiting at most lingerMillis for a batch to fill) and writes the
+ * lines for each target file with one FileChannel.write and one force().
+ * Each caller's future completes with the byte offset of its line only
+ * after that force() has returned.
+ *
+ * rewrite() runs a whole-file replacement (such as compaction) on the same
+ * writer thread, so it never interleaves with a batch; execute() does the
+ * same for any other task that must see the files between batches.
+ *
+ * Appends and rewrites hold an fcntl lock on the whole file, so other
+ * processes sharing it never append to a file that is being replaced.
+ * Such locks belong to the process and closing any descriptor of the file
+ * drops them, so code reading the files closes its readers through
+ * closeReader().
+ */
+public class AppointmentJournal implements Closeable {
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_OPEN_FILES = 16;
+
+    // The writer holds the write side while it holds a file lock; readers
+    // closed meanwhile wait in pendingCloses until it lets go
+    private static final ReentrantReadWriteLock LOCKING = new ReentrantReadWriteLock();
+    private static final Queue<Closeable> pendingCloses = new ConcurrentLinkedQueue<>();
+
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Only touched by the writer thread
+    private final Map<File, FileChannel> channels = new LinkedHashMap<File, FileChannel>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, FileChannel> eldest) {
+            if (size() <= MAX_OPEN_FILES) {
+                return false;
+            }
+            closeChannel(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+    // Identity of the file each channel was opened on, to notice replacement
+    private final Map<File, Object> fileKeys = new HashMap<>();
+
+    /**
+     * Writes the complete new contents of the journal file into replacement.
+     * current reads the file, which stays locked against other processes'
+     * appends until the replacement is in place.
+     */
+    public interface Rewriter {
+        void rewrite(FileChannel current, File replacement) throws IOException;
+    }
+
+    private static final class Entry {
+        final File file;
+        final byte[] bytes;
+        final Rewriter rewriter;
+        final Runnable task;
+        final CompletableFuture<Long> written = new CompletableFuture<>();
+
+        Entry(File file, byte[] bytes, Rewriter rewriter, Runnable task) {
+            this.file = file;
+            this.bytes = bytes;
+            this.rewriter = rewriter;
+            this.task = task;
+        }
+    }
+
+    public AppointmentJournal(int batchSize, long lingerMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.writer = new Thread(this::writeLoop, "appointment-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Queues a line for the next batch; the future yields its byte offset in file. */
+    public CompletableFuture<Long> append(File file, String line) {
+        byte[] text = line.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[text.length + NEWLINE.length];
+        System.arraycopy(text, 0, bytes, 0, text.length);
+        System.arraycopy(NEWLINE, 0, bytes, text.length, NEWLINE.length);
+
+        return enqueue(new Entry(file, bytes, null, null));
+    }
+
+    /**
+     * Queues lines to be written together, in order, with one write and one
+     * force() however many there are; the futures yield each line's offset.
+     */
+    public List<CompletableFuture<Long>> appendAll(File file, List<String> lines) {
+        List<byte[]> texts = new ArrayList<>(lines.size());
+        int size = 0;
+        for (String line : lines) {
+            byte[] text = line.getBytes(StandardCharsets.UTF_8);
+            texts.add(text);
+            size += text.length + NEWLINE.length;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        long[] starts = new long[lines.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            starts[i] = bytes.position();
+            bytes.put(texts.get(i)).put(NEWLINE);
+        }
+
+        CompletableFuture<Long> written = enqueue(new Entry(file, bytes.array(), null, null));
+        List<CompletableFuture<Long>> offsets = new ArrayList<>(lines.size());
+        for (long start : starts) {
+            offsets.add(written.thenApply(offset -> offset + start));
+        }
+        return offsets;
+    }
+
+    /**
+     * Replaces file once every line queued before this call has been
+     * written. The future yields the size of the new file.
+     */
+    public CompletableFuture<Long> rewrite(File file, Rewriter rewriter) {
+        return enqueue(new Entry(file, null, rewriter, null));
+    }
+
+    /** Runs task on the writer thread once every line queued before it is written. */
+    public CompletableFuture<Void> execute(Runnable task) {
+        return enqueue(new Entry(null, null, null, task)).thenAccept(done -> { });
+    }
+
+    private CompletableFuture<Long> enqueue(Entry entry) {
+        if (closed) {
+            entry.written.completeExceptionally(new IOException("Appointment journal is closed"));
+            return entry.written;
+        }
+        queue.add(entry);
+        if (closed && !writer.isAlive() && queue.remove(entry)) {
+            entry.written.completeExceptionally(new IOException("Appointment journal is closed"));
+        }
+        return entry.written;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Stops accepting lines, flushes everything already queued and closes the files. */
+    @Override
+    public void close() throws IOException {
+        // The writer notices within one poll interval. It is deliberately not
+        // interrupted: an interrupt during write() would close the channel.
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                process(batch);
+                batch.clear();
+            }
+        }
+        for (Map.Entry<File, FileChannel> open : channels.entrySet()) {
+            closeChannel(open.getKey(), open.getValue());
+        }
+        channels.clear();
+    }
+
+    private void fillBatch(List<Entry> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || closed) {
+                return;
+            }
+            Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // Writes runs of lines as single batches, with rewrites and tasks in between
+    private void process(List<Entry> batch) {
+        int start = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            if (entry.rewriter != null || entry.task != null) {
+                if (i > start) {
+                    writeBatch(batch.subList(start, i));
+                }
+                if (entry.rewriter != null) {
+                    runRewrite(entry);
+                } else {
+                    runTask(entry);
+                }
+                start = i + 1;
+            }
+        }
+        if (start < batch.size()) {
+            writeBatch(batch.subList(start, batch.size()));
+        }
+    }
+
+    private void runTask(Entry entry) {
+        try {
+            entry.task.run();
+            entry.written.complete(null);
+        } catch (RuntimeException e) {
+            System.err.println("Error running appointment journal task: " + e.getMessage());
+            entry.written.completeExceptionally(e);
+        }
+    }
+
+    private void runRewrite(Entry entry) {
+        File file = entry.file;
+        File replacement = new File(file.getPath() + ".rewrite");
+        long size;
+        try {
+            size = replace(file, replacement, entry.rewriter);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error rewriting " + file + ": " + e.getMessage());
+            entry.written.completeExceptionally(e);
+            return;
+        }
+        // Appends go to the new file from now on
+        FileChannel open = channels.remove(file);
+        if (open != null) {
+            closeChannel(file, open);
+        }
+        fileKeys.remove(file);
+        entry.written.complete(size);
+    }
+
+    // Runs the rewriter and moves its output over file, holding the lock on
+    // file from before the rewriter reads it until the move, so no other
+    // process appends a line to the old file that the new one lacks
+    private long replace(File file, File replacement, Rewriter rewriter) throws IOException {
+        LOCKING.writeLock().lock();
+        try {
+            FileLock lock = lockFile(file);
+            FileChannel current = null;
+            try {
+                current = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                rewriter.rewrite(current, replacement);
+                long size;
+                try (FileChannel out = FileChannel.open(replacement.toPath(), StandardOpenOption.WRITE)) {
+                    out.force(true);
+                    size = out.size();
+                }
+                Files.move(replacement.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return size;
+            } catch (IOException | RuntimeException e) {
+                // While the lock is held, so it cannot be another process's
+                replacement.delete();
+                throw e;
+            } finally {
+                lock.release();
+                if (current != null) {
+                    closeChannel(file, current);
+                }
+            }
+        } finally {
+            LOCKING.writeLock().unlock();
+            closePending();
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        // One write and one force per target file, in queue order
+        Map<File, List<Entry>> byFile = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            byFile.computeIfAbsent(entry.file, file -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<File, List<Entry>> group : byFile.entrySet()) {
+            writeGroup(group.getKey(), group.getValue());
+        }
+    }
+
+    private void writeGroup(File file, List<Entry> entries) {
+        int size = 0;
+        for (Entry entry : entries) {
+            size += entry.bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Entry entry : entries) {
+            buffer.put(entry.bytes);
+        }
+        buffer.flip();
+
+        try {
+            FileChannel channel;
+            long offset;
+            // Other workstations may be appending to the same segment, so
+            // hold the file lock from reading the end until the write is done
+            LOCKING.writeLock().lock();
+            try {
+                FileLock lock = lockFile(file);
+                channel = lock.channel();
+                try {
+                    offset = channel.size();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                LOCKING.writeLock().unlock();
+                closePending();
+            }
+            channel.force(false);
+            for (Entry entry : entries) {
+                entry.written.complete(offset);
+                offset += entry.bytes.length;
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing appointment journal batch to " + file + ": " + e.getMessage());
+            for (Entry entry : entries) {
+                entry.written.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Locks the whole of file through its append channel. fcntl locks are
+    // per inode, so if another workstation swapped in a compacted file
+    // between opening and locking, the lock is on the unlinked old one;
+    // checking the file's identity again once the lock is held catches that.
+    private FileLock lockFile(File file) throws IOException {
+        while (true) {
+            FileLock lock = BookingLock.acquire(channelFor(file), 0, Long.MAX_VALUE);
+            if (!replaced(file)) {
+                return lock;
+            }
+            lock.release();
+        }
+    }
+
+    private FileChannel channelFor(File file) throws IOException {
+        FileChannel channel = channels.get(file);
+        if (channel != null && channel.isOpen() && !replaced(file)) {
+            return channel;
+        }
+        if (channel != null) {
+            closeChannel(file, channel);
+        }
+        while (true) {
+            Object before = fileKey(file);
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            // Unless the key is the same before and after opening, the file
+            // may have been swapped in between and the channel is on the other
+            Object opened = fileKey(file);
+            if (opened != null && opened.equals(before)) {
+                channels.put(file, channel);
+                fileKeys.put(file, opened);
+                return channel;
+            }
+            closeChannel(file, channel);
+        }
+    }
+
+    // True if another process has swapped in a new file (e.g. by compacting
+    // it) since the channel was opened, so appends would go to the old one
+    private boolean replaced(File file) {
+        Object opened = fileKeys.get(file);
+        return opened != null && !opened.equals(fileKey(file));
+    }
+
+    /**
+     * Closes a reader of one of the journal's files. While the writer holds
+     * a file lock the reader is left for the writer to close once it lets
+     * go, since closing it now would drop that lock.
+     */
+    static void closeReader(Closeable reader) {
+        pendingCloses.add(reader);
+        closePending();
+    }
+
+    private static void closePending() {
+        if (!LOCKING.readLock().tryLock()) {
+            return;
+        }
+        try {
+            // The writer thread itself, e.g. a rewriter closing a reader
+            if (LOCKING.isWriteLockedByCurrentThread()) {
+                return;
+            }
+            Closeable reader;
+            while ((reader = pendingCloses.poll()) != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing appointments file: " + e.getMessage());
+                }
+            }
+        } finally {
+            LOCKING.readLock().unlock();
+        }
+    }
+
+    static Object fileKey(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void closeChannel(File file, FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + file + ": " + e.getMessage());
+        }
+    }
+}
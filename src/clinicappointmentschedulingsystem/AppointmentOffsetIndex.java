@@ -0,0 +1,104 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sidecar index for the text appointment store mapping appointment id to
+ * the location of the latest version of that appointment's record (segment
+ * and byte offset packed into a long, see AppointmentSegments.location).
+ *
+ * The file is a sequence of fixed 12-byte entries (int id, long location),
+ * appended as records are written; when an id appears more than once the
+ * last entry wins. It can always be rebuilt from a scan of the segments.
+ */
+public class AppointmentOffsetIndex implements Closeable {
+    static final int ENTRY_SIZE = 12;
+
+    private final File file;
+    private FileChannel channel;
+
+    public AppointmentOffsetIndex(File file) throws IOException {
+        this.file = file;
+        this.channel = open();
+    }
+
+    /** Reads every entry; later entries for the same id replace earlier ones. */
+    public synchronized Map<Integer, Long> load() throws IOException {
+        Map<Integer, Long> offsets = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        long position = 0;
+        long end = channel.size() - channel.size() % ENTRY_SIZE;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= ENTRY_SIZE) {
+                offsets.put(buffer.getInt(), buffer.getLong());
+            }
+        }
+        return offsets;
+    }
+
+    public synchronized void append(int id, long offset) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+        entry.putInt(id).putLong(offset).flip();
+        long position = channel.size();
+        while (entry.hasRemaining()) {
+            position += channel.write(entry, position);
+        }
+    }
+
+    /** Replaces the whole index with the given id to offset mapping. */
+    public synchronized void rebuild(Map<Integer, Long> offsets) throws IOException {
+        File replacement = new File(file.getPath() + ".rebuild");
+        try (FileChannel out = FileChannel.open(replacement.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+            for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+                if (buffer.remaining() < ENTRY_SIZE) {
+                    drain(buffer, out);
+                }
+                buffer.putInt(entry.getKey()).putLong(entry.getValue());
+            }
+            drain(buffer, out);
+            out.force(false);
+        }
+        channel.close();
+        try {
+            Files.move(replacement.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = open();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package clinicappointmentschedulingsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page of AppointmentRepository.getAppointmentsPage(): appointments
+ * newest first (date, then time, then id, all descending) and the cursor
+ * for the page after it.
+ *
+ * The cursor is an opaque string holding the date, time and id of the
+ * last appointment on the page. The next page starts strictly after that
+ * key, so it is read from the index like the first page however deep it
+ * is, and rows added or removed meanwhile do not shift it the way an
+ * OFFSET would.
+ */
+public final class AppointmentPage {
+    /** The order pages are in, for backends that sort in memory. */
+    static final Comparator<Appointment> NEWEST_FIRST = Comparator.comparing(Appointment::getAppointmentDate)
+            .thenComparing(Appointment::getAppointmentTime)
+            .thenComparingInt(Appointment::getId)
+            .reversed();
+
+    private final List<Appointment> appointments;
+    private final String nextCursor;
+
+    AppointmentPage(List<Appointment> appointments, String nextCursor) {
+        this.appointments = Collections.unmodifiableList(appointments);
+        this.nextCursor = nextCursor;
+    }
+
+    static AppointmentPage empty() {
+        return new AppointmentPage(Collections.emptyList(), null);
+    }
+
+    public List<Appointment> getAppointments() { return appointments; }
+
+    /** Pass to getAppointmentsPage() for the next page; null on the last page. */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+
+    // Times go in as the backend stores them, so the next query compares like with like
+    static String cursor(LocalDate date, String time, int id) {
+        String key = date + "|" + time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** The position a cursor stands for. */
+    static final class Key {
+        final LocalDate date;
+        final String time;
+        final int id;
+
+        private Key(LocalDate date, String time, int id) {
+            this.date = date;
+            this.time = time;
+            this.id = id;
+        }
+
+        /** Null for a null or empty cursor, i.e. the first page. */
+        static Key parse(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                if (parts.length == 3) {
+                    return new Key(LocalDate.parse(parts[0]), parts[1], Integer.parseInt(parts[2]));
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+            }
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor);
+        }
+
+        /** True if the appointment comes after this position in NEWEST_FIRST order. */
+        boolean isBefore(Appointment appointment) {
+            int order = appointment.getAppointmentDate().compareTo(date);
+            if (order == 0) {
+                order = appointment.getAppointmentTime().compareTo(time);
+            }
+            if (order == 0) {
+                order = Integer.compare(appointment.getId(), id);
+            }
+            return order < 0;
+        }
+    }
+}
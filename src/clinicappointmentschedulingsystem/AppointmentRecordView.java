@@ -0,0 +1,283 @@
+package clinicappointmentschedulingsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Reusable, mutable view of one id|patient|doctor|date|time|status|createdAt
+ * record line, parsed in place from the line's bytes, or of one record of a
+ * BinaryAppointmentLog, read from the record's fields.
+ *
+ * parse() only finds the field boundaries and decodes the id, date and time
+ * into ints, so scanning a file with one view allocates nothing per line.
+ * Text fields are compared against strings byte by byte and only decoded
+ * when asked for; doctor and status resolve to their SymbolTable codes
+ * without decoding once they have been seen. toAppointment() builds a
+ * SimpleAppointment only for the records a caller keeps. A view is valid
+ * until the next parse(); one pointed at a binary record only while that
+ * record is being visited.
+ */
+public final class AppointmentRecordView {
+    private static final int FIELDS = 7;
+    private static final int PATIENT = 1;
+    private static final int DOCTOR = 2;
+    private static final int TIME = 4;
+    private static final int STATUS = 5;
+    private static final int CREATED_AT = 6;
+
+    private byte[] line;
+    // starts[i]..ends[i] are the bytes of field i
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private int id;
+    private int year;
+    private int month;
+    private int day;
+    private int minuteOfDay;
+    // Set while the view is on a binary record; its patient name is then the line
+    private BinaryAppointmentLog.RecordView record;
+    private final byte[] name = new byte[BinaryAppointmentLog.NAME_CAPACITY];
+
+    /**
+     * Points the view at a line. Returns false, leaving the view unusable,
+     * if the line is not a record with an id and a valid yyyy-MM-dd date.
+     */
+    boolean parse(byte[] line, int length) {
+        this.record = null;
+        this.line = line;
+        int field = 0;
+        starts[0] = 0;
+        for (int i = 0; i < length && field < FIELDS - 1; i++) {
+            if (line[i] == '|') {
+                ends[field] = i;
+                starts[++field] = i + 1;
+            }
+        }
+        if (field < FIELDS - 1) {
+            return false;
+        }
+        // A createdAt containing '|' would not round-trip anyway; stop at the next one
+        ends[CREATED_AT] = length;
+        for (int i = starts[CREATED_AT]; i < length; i++) {
+            if (line[i] == '|') {
+                ends[CREATED_AT] = i;
+                break;
+            }
+        }
+
+        id = digits(starts[0], ends[0]);
+        if (id < 0) {
+            return false;
+        }
+        int date = starts[3];
+        if (ends[3] - date != 10 || line[date + 4] != '-' || line[date + 7] != '-') {
+            return false;
+        }
+        year = digits(date, date + 4);
+        month = digits(date + 5, date + 7);
+        day = digits(date + 8, date + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return false;
+        }
+        minuteOfDay = parseMinute(starts[TIME], ends[TIME]);
+        return true;
+    }
+
+    /** Points the view at a binary record during BinaryAppointmentLog.scan(). */
+    void parse(BinaryAppointmentLog.RecordView record) {
+        this.record = record;
+        id = record.recordNumber() + 1;
+        setDate(record.epochDay());
+        minuteOfDay = record.minuteOfDay();
+        line = name;
+        starts[PATIENT] = 0;
+        ends[PATIENT] = record.copyPatientName(name);
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public int year() {
+        return year;
+    }
+
+    public int month() {
+        return month;
+    }
+
+    public int dayOfMonth() {
+        return day;
+    }
+
+    public boolean isOn(LocalDate date) {
+        return year == date.getYear() && month == date.getMonthValue() && day == date.getDayOfMonth();
+    }
+
+    /** Minutes since midnight of an H:MM or HH:MM time, or -1 if it is not one. */
+    public int minuteOfDay() {
+        return minuteOfDay;
+    }
+
+    public boolean isPatient(String name) {
+        return fieldEquals(PATIENT, name);
+    }
+
+    public boolean isDoctor(String name) {
+        if (record != null) {
+            return SymbolTable.doctors().nameOf(record.doctorSymbol()).equals(name);
+        }
+        return fieldEquals(DOCTOR, name);
+    }
+
+    public boolean isTime(String time) {
+        if (record != null) {
+            return isFormattedTime(time);
+        }
+        return fieldEquals(TIME, time);
+    }
+
+    public boolean hasStatus(String status) {
+        if (record != null) {
+            return SymbolTable.statuses().nameOf(record.statusSymbol()).equals(status);
+        }
+        return fieldEquals(STATUS, status);
+    }
+
+    public String patientName() {
+        return field(PATIENT);
+    }
+
+    public String doctorName() {
+        return record != null ? SymbolTable.doctors().nameOf(record.doctorSymbol()) : field(DOCTOR);
+    }
+
+    public String status() {
+        return record != null ? SymbolTable.statuses().nameOf(record.statusSymbol()) : field(STATUS);
+    }
+
+    public int doctorCode() {
+        if (record != null) {
+            return record.doctorSymbol();
+        }
+        return SymbolTable.doctors().intern(line, starts[DOCTOR], ends[DOCTOR] - starts[DOCTOR]);
+    }
+
+    public int statusCode() {
+        if (record != null) {
+            return record.statusSymbol();
+        }
+        return SymbolTable.statuses().intern(line, starts[STATUS], ends[STATUS] - starts[STATUS]);
+    }
+
+    public String createdAt() {
+        if (record != null) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(record.createdAt()), ZoneId.systemDefault()).toString();
+        }
+        return field(CREATED_AT);
+    }
+
+    public LocalDate date() {
+        return LocalDate.of(year, month, day);
+    }
+
+    public SimpleAppointment toAppointment() {
+        if (record != null) {
+            return record.toAppointment();
+        }
+        SymbolTable times = SymbolTable.times();
+        String time = times.nameOf(times.intern(line, starts[TIME], ends[TIME] - starts[TIME]));
+        return new SimpleAppointment(id, field(PATIENT), doctorCode(), date(), time, statusCode());
+    }
+
+    // Civil date of a day count from 1970-01-01, as LocalDate.ofEpochDay() works it out
+    private void setDate(int epochDay) {
+        int days = epochDay + 719468;
+        int era = (days >= 0 ? days : days - 146096) / 146097;
+        int dayOfEra = days - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153; // from March
+        day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    }
+
+    // Binary times read back as HH:MM, so that is the only form that matches
+    private boolean isFormattedTime(String time) {
+        int hours = minuteOfDay / 60;
+        int minutes = minuteOfDay % 60;
+        return time.length() == 5 && time.charAt(2) == ':'
+                && time.charAt(0) == '0' + hours / 10 && time.charAt(1) == '0' + hours % 10
+                && time.charAt(3) == '0' + minutes / 10 && time.charAt(4) == '0' + minutes % 10;
+    }
+
+    private String field(int field) {
+        return new String(line, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+    }
+
+    private boolean fieldEquals(int field, String value) {
+        int start = starts[field];
+        int length = ends[field] - start;
+        if (length != value.length()) {
+            // Differs in length unless the value has multi-byte characters
+            return !isAscii(value) && equalBytes(start, length, value.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[start + i] != value.charAt(i)) {
+                return !isAscii(value) && equalBytes(start, length, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return true;
+    }
+
+    private boolean equalBytes(int start, int length, byte[] value) {
+        if (value.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Non-negative int from ASCII digits, or -1
+    private int digits(int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int parseMinute(int start, int end) {
+        int colon = end - 3;
+        if (colon <= start || colon - start > 2 || line[colon] != ':') {
+            return -1;
+        }
+        int hours = digits(start, colon);
+        int minutes = digits(colon + 1, end);
+        return hours < 0 || hours > 23 || minutes < 0 || minutes > 59 ? -1 : hours * 60 + minutes;
+    }
+}
@@ -0,0 +1,308 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Line format shared by the text appointment files.
+ *
+ * A record line is id|patient|doctor|date|time|status|createdAt. Changing
+ * an appointment appends a new version of its line under the same id and
+ * the last version in a file wins. When an appointment moves to another
+ * month's segment, the old segment gets a version with status "moved" so
+ * its earlier versions stop counting.
+ *
+ * Files written before ids existed have no id column and may contain
+ * "!S"/"!R" status and reschedule records; readLatest() still folds those.
+ */
+final class AppointmentRecords {
+    static final String MOVED = "moved";
+
+    private static final String STATUS_UPDATE = "!S";
+    private static final String RESCHEDULE = "!R";
+
+    /** One version of an appointment together with its creation time. */
+    static final class Version {
+        final SimpleAppointment appointment;
+        final String createdAt;
+
+        Version(SimpleAppointment appointment, String createdAt) {
+            this.appointment = appointment;
+            this.createdAt = createdAt;
+        }
+    }
+
+    interface LineVisitor {
+        void visit(long offset, String line) throws IOException;
+    }
+
+    private AppointmentRecords() {
+    }
+
+    static boolean isRecord(String[] parts) {
+        return parts.length >= 7 && !parts[0].isEmpty() && parts[0].chars().allMatch(Character::isDigit);
+    }
+
+    static SimpleAppointment parse(String[] parts) {
+        return new SimpleAppointment(
+                Integer.parseInt(parts[0]), // id
+                parts[1], // patient name
+                parts[2], // doctor name
+                LocalDate.parse(parts[3]), // date
+                parts[4], // time
+                parts[5]  // status
+        );
+    }
+
+    static String createdAt(String[] parts) {
+        return parts[6];
+    }
+
+    static String format(SimpleAppointment appointment, String createdAt) {
+        return String.format("%d|%s|%s|%s|%s|%s|%s",
+                appointment.getId(), appointment.getPatientName(), appointment.getDoctorName(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getStatus(), createdAt);
+    }
+
+    /**
+     * Reads a UTF-8 text file line by line, tracking each line's byte offset.
+     * next() leaves the raw bytes of the line in a buffer that is reused for
+     * the following line, so callers that parse with AppointmentRecordView
+     * never allocate per line.
+     */
+    static final class LineReader implements Closeable {
+        private final InputStream in;
+        private final FileChannel channel;
+        private final byte[] chunk = new byte[64 * 1024];
+        private int chunkPosition;
+        private int chunkLimit;
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private long position;
+        private long lineStart;
+        private boolean terminated;
+
+        LineReader(File file) throws IOException {
+            this(file, 0);
+        }
+
+        /** Starts reading at the given byte offset, which must be a line start. */
+        LineReader(File file, long start) throws IOException {
+            FileInputStream stream = new FileInputStream(file);
+            if (start > 0) {
+                stream.getChannel().position(start);
+            }
+            in = stream;
+            channel = null;
+            position = start;
+        }
+
+        /**
+         * Reads through channel from the given line start. The channel is
+         * left open, e.g. for a file locked by AppointmentJournal.
+         */
+        LineReader(FileChannel channel, long start) {
+            this.in = null;
+            this.channel = channel;
+            position = start;
+        }
+
+        /** Byte offset of the line most recently read. */
+        long offset() {
+            return lineStart;
+        }
+
+        /** Byte offset just past the line most recently read. */
+        long end() {
+            return position;
+        }
+
+        /**
+         * False if the last line read had no newline yet, which for a file
+         * another process is appending to means it may be incomplete.
+         */
+        boolean terminated() {
+            return terminated;
+        }
+
+        /** The current line's bytes, without the line separator; valid until next(). */
+        byte[] bytes() {
+            return line;
+        }
+
+        int length() {
+            return lineLength;
+        }
+
+        /** Reads the next line into bytes(); false at end of file. */
+        boolean next() throws IOException {
+            lineLength = 0;
+            lineStart = position;
+            while (true) {
+                if (chunkPosition == chunkLimit) {
+                    // Everything before position has been consumed
+                    int read = in != null ? in.read(chunk) : channel.read(ByteBuffer.wrap(chunk), position);
+                    if (read <= 0) {
+                        terminated = false;
+                        return lineLength > 0;
+                    }
+                    chunkPosition = 0;
+                    chunkLimit = read;
+                }
+                int newline = chunkPosition;
+                while (newline < chunkLimit && chunk[newline] != '\n') {
+                    newline++;
+                }
+                append(chunkPosition, newline - chunkPosition);
+                position += newline - chunkPosition;
+                if (newline < chunkLimit) {
+                    chunkPosition = newline + 1;
+                    position++;
+                    terminated = true;
+                    if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                        lineLength--;
+                    }
+                    return true;
+                }
+                chunkPosition = chunkLimit;
+            }
+        }
+
+        String readLine() throws IOException {
+            return next() ? new String(line, 0, lineLength, StandardCharsets.UTF_8) : null;
+        }
+
+        private void append(int from, int count) {
+            if (lineLength + count > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + count));
+            }
+            System.arraycopy(chunk, from, line, lineLength, count);
+            lineLength += count;
+        }
+
+        @Override
+        public void close() {
+            if (in != null) {
+                AppointmentJournal.closeReader(in);
+            }
+        }
+    }
+
+    static void forEachLine(File file, LineVisitor visitor) throws IOException {
+        try (LineReader reader = new LineReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                visitor.visit(reader.offset(), line);
+            }
+        }
+    }
+
+    interface RecordVisitor {
+        void visit(long offset, AppointmentRecordView record) throws IOException;
+    }
+
+    /** Visits each id record in the file through one reused view; other lines are skipped. */
+    static void forEachRecord(FileChannel file, RecordVisitor visitor) throws IOException {
+        AppointmentRecordView record = new AppointmentRecordView();
+        LineReader reader = new LineReader(file, 0);
+        while (reader.next()) {
+            if (record.parse(reader.bytes(), reader.length())) {
+                visitor.visit(reader.offset(), record);
+            }
+        }
+    }
+
+    /** One positioned read of the line starting at offset. */
+    static String readLineAt(File file, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(512);
+            while (true) {
+                int read = channel.read(buffer, offset + buffer.position());
+                for (int i = 0; i < buffer.position(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        return decode(buffer.array(), i);
+                    }
+                }
+                if (read <= 0) {
+                    return decode(buffer.array(), buffer.position());
+                }
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+        } finally {
+            AppointmentJournal.closeReader(channel);
+        }
+    }
+
+    /**
+     * Folds the given files into the latest live version of each appointment,
+     * in id order. Each file is folded on its own first, so a "moved" version
+     * only hides earlier versions in its own file. Appointments without an id
+     * column are numbered in the order they are read.
+     */
+    static TreeMap<Integer, Version> readLatest(List<File> files) throws IOException {
+        TreeMap<Integer, Version> latest = new TreeMap<>();
+        int[] legacyId = {1};
+        for (File file : files) {
+            Map<Integer, Version> inFile = new HashMap<>();
+            forEachLine(file, (offset, line) -> {
+                String[] parts = line.split("\\|");
+                if (isRecord(parts)) {
+                    SimpleAppointment appointment = parse(parts);
+                    inFile.put(appointment.getId(), new Version(appointment, createdAt(parts)));
+                } else if (line.startsWith("!")) {
+                    foldUpdateRecord(inFile, parts);
+                } else if (parts.length >= 5) {
+                    SimpleAppointment appointment = new SimpleAppointment(legacyId[0]++,
+                            parts[0], parts[1], LocalDate.parse(parts[2]), parts[3], parts[4]);
+                    String createdAt = parts.length >= 6 ? parts[5] : LocalDateTime.now().toString();
+                    inFile.put(appointment.getId(), new Version(appointment, createdAt));
+                }
+            });
+            for (Version version : inFile.values()) {
+                if (!MOVED.equals(version.appointment.getStatus())) {
+                    latest.put(version.appointment.getId(), version);
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static void foldUpdateRecord(Map<Integer, Version> versions, String[] parts) {
+        Version old = parts.length >= 3 ? versions.get(Integer.parseInt(parts[1])) : null;
+        if (old == null) {
+            return;
+        }
+        SimpleAppointment a = old.appointment;
+        if (STATUS_UPDATE.equals(parts[0])) {
+            versions.put(a.getId(), new Version(new SimpleAppointment(a.getId(), a.getPatientName(),
+                    a.getDoctorName(), a.getAppointmentDate(), a.getAppointmentTime(), parts[2]), old.createdAt));
+        } else if (RESCHEDULE.equals(parts[0]) && parts.length >= 4) {
+            versions.put(a.getId(), new Version(new SimpleAppointment(a.getId(), a.getPatientName(),
+                    a.getDoctorName(), LocalDate.parse(parts[2]), parts[3], a.getStatus()), old.createdAt));
+        }
+    }
+
+    private static String decode(byte[] bytes, int length) {
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package clinicappointmentschedulingsystem;
+
+import java.util.Locale;
+
+/**
+ * Chooses the AppointmentRepository backend from -Dclinic.repository:
+ * file (the default), sqlite, postgresql or memory. If PostgreSQL cannot
+ * be reached at startup the file store is used instead. If it can be
+ * reached but its schema cannot be brought up to date, opening it fails:
+ * the other workstations keep booking into the shared database, so this
+ * one must not book into files of its own.
+ */
+public final class AppointmentRepositories {
+    public static final String REPOSITORY_PROPERTY = "clinic.repository";
+
+    // Opened on first use; class initialization makes that happen exactly once
+    private static class Holder {
+        static final AppointmentRepository INSTANCE = open(System.getProperty(REPOSITORY_PROPERTY, "file"));
+    }
+
+    private AppointmentRepositories() {
+    }
+
+    /** The configured backend, shared by the whole application. */
+    public static AppointmentRepository getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * The named backend, e.g. to run one workload against each. file,
+     * sqlite and postgresql share their single instances; memory is new
+     * on every call.
+     */
+    public static AppointmentRepository open(String backend) {
+        switch (backend.trim().toLowerCase(Locale.ROOT)) {
+            case "file":
+                return new FileAppointmentRepository(SimpleDataStore.getInstance());
+            case "sqlite":
+                return DatabaseManager.getInstance();
+            case "postgresql":
+                PostgreSQLManager postgres = PostgreSQLManager.getInstance();
+                if (postgres.testConnection()) {
+                    return postgres;
+                }
+                if (postgres.getSchemaProblem() != null) {
+                    throw new IllegalStateException("PostgreSQL is reachable but cannot be used: "
+                            + postgres.getSchemaProblem());
+                }
+                System.err.println("PostgreSQL is unavailable, using file-based storage");
+                return new FileAppointmentRepository(SimpleDataStore.getInstance());
+            case "memory":
+                return new InMemoryAppointmentRepository();
+            default:
+                System.err.println("Unknown " + REPOSITORY_PROPERTY + " '" + backend + "', using file-based storage");
+                return new FileAppointmentRepository(SimpleDataStore.getInstance());
+        }
+    }
+}
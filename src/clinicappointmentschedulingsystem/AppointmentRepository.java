@@ -0,0 +1,135 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Storage for users, doctors and appointments, whatever keeps them.
+ *
+ * Implementations: the clinic_data files (SimpleDataStore), SQLite
+ * (DatabaseManager), PostgreSQL (PostgreSQLManager) and memory
+ * (InMemoryAppointmentRepository). AppointmentRepositories picks one from
+ * configuration at startup, so the UI code never names a backend.
+ *
+ * Like the classes behind it, methods report failure by returning false,
+ * FAILED or an empty result and printing the cause, rather than throwing.
+ */
+public interface AppointmentRepository {
+
+    boolean authenticateUser(String username, String password);
+
+    List<String> getAllDoctors();
+
+    boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time);
+
+    /** Saves the appointment only if the doctor is free at that time. */
+    BookingResult tryBook(String patientName, String doctorName, LocalDate date, String time);
+
+    /**
+     * Like tryBook() above, also keeping the request's phone number and
+     * notes with the appointment where the backend has room for them.
+     */
+    default BookingResult tryBook(AppointmentRequest request) {
+        return tryBook(request.getPatientName(), request.getDoctorName(), request.getDate(), request.getTime());
+    }
+
+    /**
+     * Books several appointments in one go, e.g. a recurring series or an
+     * imported schedule. Each request is checked like tryBook(), including
+     * against requests earlier in the list, and gets its own result in the
+     * same order. Backends write the accepted rows together rather than
+     * one round trip each.
+     */
+    default List<BookingResult> saveAppointments(List<AppointmentRequest> requests) {
+        List<BookingResult> results = new ArrayList<>(requests.size());
+        for (AppointmentRequest request : requests) {
+            results.add(tryBook(request.getPatientName(), request.getDoctorName(), request.getDate(),
+                    request.getTime()));
+        }
+        return results;
+    }
+
+    /** True if a non-cancelled appointment holds the slot. */
+    boolean hasConflict(String doctorName, LocalDate date, String time);
+
+    boolean updateAppointmentStatus(int appointmentId, String status);
+
+    default boolean cancelAppointment(int appointmentId) {
+        return updateAppointmentStatus(appointmentId, "cancelled");
+    }
+
+    /** Moves an appointment to a new slot; false if that slot is taken or the appointment is cancelled. */
+    boolean rescheduleAppointment(int appointmentId, LocalDate date, String time);
+
+    List<Appointment> getAllAppointments();
+
+    /** Appointments dated between startDate and endDate inclusive, ordered by date and time. */
+    List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Hands the appointments getAppointmentsByDateRange() would return to
+     * action one at a time, in the same order. The SQL backends read them
+     * off the database as action consumes them, so a year of the whole
+     * clinic never sits in memory at once. False if reading failed part
+     * way; exceptions from action are passed on.
+     */
+    default boolean forEachAppointmentInRange(LocalDate startDate, LocalDate endDate,
+            Consumer<? super Appointment> action) {
+        getAppointmentsByDateRange(startDate, endDate).forEach(action);
+        return true;
+    }
+
+    /**
+     * Up to limit matching appointments, read lazily where the backend
+     * allows. The stream may hold a file or connection open; close it.
+     */
+    Stream<Appointment> streamAppointments(Predicate<? super Appointment> filter, long limit);
+
+    /**
+     * Up to pageSize appointments, newest first, starting after cursor
+     * (null for the first page). The SQL backends seek to the cursor in an
+     * index, so page 1000 costs what page 1 does; this default sorts
+     * everything on each call and suits small stores only.
+     */
+    default AppointmentPage getAppointmentsPage(int pageSize, String cursor) {
+        AppointmentPage.Key after;
+        try {
+            after = AppointmentPage.Key.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error fetching appointments: " + e.getMessage());
+            return AppointmentPage.empty();
+        }
+        int size = Math.max(pageSize, 1);
+        List<Appointment> appointments;
+        try (Stream<Appointment> all = streamAppointments(appointment -> true, Long.MAX_VALUE)) {
+            appointments = all.filter(appointment -> after == null || after.isBefore(appointment))
+                    .sorted(AppointmentPage.NEWEST_FIRST)
+                    .limit(size + 1L)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        if (appointments.size() <= size) {
+            return new AppointmentPage(appointments, null);
+        }
+        appointments.remove(appointments.size() - 1);
+        Appointment last = appointments.get(appointments.size() - 1);
+        return new AppointmentPage(appointments,
+                AppointmentPage.cursor(last.getAppointmentDate(), last.getAppointmentTime(), last.getId()));
+    }
+
+    /**
+     * Calls listener with appointments other workstations add or change,
+     * until the returned Runnable is run. Backends that cannot tell do
+     * nothing.
+     */
+    default Runnable addAppointmentListener(Consumer<List<Appointment>> listener) {
+        return () -> { };
+    }
+
+    /** Where this repository keeps its data, for status lines such as "Connected to PostgreSQL". */
+    String getBackendName();
+}
@@ -0,0 +1,42 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+
+/**
+ * One appointment to book, as passed to AppointmentRepository.tryBook()
+ * and saveAppointments(). The phone number and notes are optional.
+ */
+public final class AppointmentRequest {
+    private final String patientName;
+    private final String doctorName;
+    private final LocalDate date;
+    private final String time;
+    private final String patientPhone;
+    private final String notes;
+
+    public AppointmentRequest(String patientName, String doctorName, LocalDate date, String time) {
+        this(patientName, null, doctorName, date, time, null);
+    }
+
+    public AppointmentRequest(String patientName, String patientPhone, String doctorName, LocalDate date,
+                              String time, String notes) {
+        this.patientName = patientName;
+        this.patientPhone = patientPhone;
+        this.doctorName = doctorName;
+        this.date = date;
+        this.time = time;
+        this.notes = notes;
+    }
+
+    public String getPatientName() { return patientName; }
+    public String getDoctorName() { return doctorName; }
+    public LocalDate getDate() { return date; }
+    public String getTime() { return time; }
+    public String getPatientPhone() { return patientPhone; }
+    public String getNotes() { return notes; }
+
+    @Override
+    public String toString() {
+        return patientName + " with " + doctorName + " on " + date + " at " + time;
+    }
+}
@@ -0,0 +1,162 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Month-partitioned layout of the text appointment store.
+ *
+ * Appointments are kept in one file per month of their appointment date
+ * (appointments-2026-10.txt) and segments.manifest lists the months that
+ * have a file. A record's location is packed into a long as the segment
+ * key in the high bits and the byte offset within that file in the low 40.
+ *
+ * Workstations sharing the directory update the manifest under a lock on
+ * segments.lock, re-reading it first, so a month one of them registers is
+ * never lost to another's write.
+ */
+public class AppointmentSegments {
+    private static final String MANIFEST = "segments.manifest";
+    private static final String MANIFEST_LOCK = "segments.lock";
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final File directory;
+    private final File manifestFile;
+    private final File lockFile;
+    private final TreeSet<Integer> segments = new TreeSet<>();
+
+    public AppointmentSegments(File directory) throws IOException {
+        this.directory = directory;
+        this.manifestFile = new File(directory, MANIFEST);
+        this.lockFile = new File(directory, MANIFEST_LOCK);
+        readManifest();
+    }
+
+    /** Picks up segments another process has added to the manifest. */
+    public synchronized void refresh() throws IOException {
+        readManifest();
+    }
+
+    private void readManifest() throws IOException {
+        if (!manifestFile.exists()) {
+            return;
+        }
+        for (String line : Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                segments.add(keyOf(LocalDate.parse(line + "-01")));
+            } catch (DateTimeParseException e) {
+                System.err.println("Skipping bad line in " + manifestFile + ": " + line);
+            }
+        }
+    }
+
+    public boolean manifestExists() {
+        return manifestFile.exists();
+    }
+
+    public static int keyOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    public static String nameOf(int key) {
+        return String.format("%04d-%02d", key / 12, key % 12 + 1);
+    }
+
+    public File fileFor(int key) {
+        return new File(directory, "appointments-" + nameOf(key) + ".txt");
+    }
+
+    public static long location(int key, long offset) {
+        return ((long) key << OFFSET_BITS) | offset;
+    }
+
+    public static int segmentOf(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    public static long offsetOf(long location) {
+        return location & OFFSET_MASK;
+    }
+
+    public synchronized List<Integer> all() {
+        return new ArrayList<>(segments);
+    }
+
+    /** Segments that can hold appointments dated between start and end inclusive. */
+    public synchronized List<Integer> between(LocalDate start, LocalDate end) {
+        if (end.isBefore(start)) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(segments.subSet(keyOf(start), true, keyOf(end), true));
+    }
+
+    /** Creates the segment file and records it in the manifest if it is new. */
+    public synchronized File register(int key) throws IOException {
+        File file = fileFor(key);
+        if (segments.contains(key)) {
+            return file;
+        }
+        file.createNewFile();
+        segments.add(key);
+        writeManifest();
+        return file;
+    }
+
+    /** Records segment files that were written directly, with one manifest write. */
+    public synchronized void registerAll(Collection<Integer> keys) throws IOException {
+        if (segments.addAll(keys) || !manifestExists()) {
+            writeManifest();
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = BookingLock.acquire(channel, 0, Long.MAX_VALUE);
+            try {
+                // Keep months another workstation registered since we last looked
+                readManifest();
+                replaceManifest();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private void replaceManifest() throws IOException {
+        Path replacement = Files.createTempFile(directory.toPath(), "segments", ".tmp");
+        try {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                    Files.newOutputStream(replacement), StandardCharsets.UTF_8))) {
+                writer.println("# Appointment segments, one month per line");
+                for (int key : segments) {
+                    writer.println(nameOf(key));
+                }
+                if (writer.checkError()) {
+                    throw new IOException("write to " + replacement + " failed");
+                }
+            }
+            Files.move(replacement, manifestFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(replacement);
+        }
+    }
+}
\ No newline at end of file
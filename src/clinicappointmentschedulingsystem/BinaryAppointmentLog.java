@@ -0,0 +1,346 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-width binary appointment log backed by a memory-mapped file.
+ *
+ * Every record is RECORD_SIZE bytes, so record N lives at
+ * HEADER_SIZE + N * RECORD_SIZE and can be read without walking the file.
+ * Doctor names and statuses are stored as small dictionary codes (kept in a
+ * ".dict" sidecar file), dates as epoch days and times as minute of day.
+ * File codes are translated to the process-wide SymbolTable codes once
+ * when the dictionary is loaded, so reading a record never looks up or
+ * copies a doctor or status string.
+ */
+public class BinaryAppointmentLog implements Closeable {
+    private static final int MAGIC = 0x43415031; // "CAP1"
+    private static final short VERSION = 1;
+
+    // Header: magic(4) version(2) recordSize(2) recordCount(4) reserved(4)
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+
+    // Record: epochDay(4) minuteOfDay(2) doctor(2) status(1) nameLength(1)
+    //         reserved(6) createdAt(8) patientName(72)
+    static final int RECORD_SIZE = 96;
+    private static final int EPOCH_DAY = 0;
+    private static final int MINUTE_OF_DAY = 4;
+    private static final int DOCTOR = 6;
+    private static final int STATUS = 8;
+    private static final int NAME_LENGTH = 9;
+    private static final int CREATED_AT = 16;
+    private static final int NAME = 24;
+    static final int NAME_CAPACITY = RECORD_SIZE - NAME;
+
+    private static final int INITIAL_CAPACITY = 1024; // records
+
+    private static final String DOCTOR_PREFIX = "doctor:";
+    private static final String STATUS_PREFIX = "status:";
+
+    private final File file;
+    private final File dictionaryFile;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+
+    // File code -> SymbolTable code, and name -> file code for writing
+    private final List<Integer> doctors = new ArrayList<>();
+    private final Map<String, Integer> doctorCodes = new HashMap<>();
+    private final List<Integer> statuses = new ArrayList<>();
+    private final Map<String, Integer> statusCodes = new HashMap<>();
+
+    /**
+     * Read-only view of one record in the mapped file. The same instance is
+     * repositioned for every record during a scan, so it must not be kept.
+     */
+    public final class RecordView {
+        private int base;
+        private int recordNumber;
+
+        public int recordNumber() { return recordNumber; }
+        public int epochDay() { return buffer.getInt(base + EPOCH_DAY); }
+        public int minuteOfDay() { return buffer.getShort(base + MINUTE_OF_DAY); }
+        public int doctorCode() { return buffer.getShort(base + DOCTOR); }
+        public int statusCode() { return buffer.get(base + STATUS); }
+        public long createdAt() { return buffer.getLong(base + CREATED_AT); }
+        public int doctorSymbol() { return doctors.get(doctorCode()); }
+        public int statusSymbol() { return statuses.get(statusCode()); }
+
+        /** Copies the UTF-8 patient name into into (NAME_CAPACITY bytes) and returns its length. */
+        public int copyPatientName(byte[] into) {
+            int length = buffer.get(base + NAME_LENGTH) & 0xFF;
+            buffer.get(base + NAME, into, 0, length);
+            return length;
+        }
+
+        public String patientName() {
+            byte[] name = new byte[buffer.get(base + NAME_LENGTH) & 0xFF];
+            buffer.get(base + NAME, name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        public SimpleAppointment toAppointment() {
+            return new SimpleAppointment(
+                    recordNumber + 1,
+                    patientName(),
+                    doctors.get(doctorCode()),
+                    LocalDate.ofEpochDay(epochDay()),
+                    formatTime(minuteOfDay()),
+                    statuses.get(statusCode()));
+        }
+    }
+
+    public interface RecordVisitor {
+        void visit(RecordView record);
+    }
+
+    public BinaryAppointmentLog(File file) throws IOException {
+        this.file = file;
+        this.dictionaryFile = new File(file.getPath() + ".dict");
+        loadDictionary();
+
+        boolean fresh = !file.exists() || file.length() == 0;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (fresh) {
+            map(HEADER_SIZE + (long) INITIAL_CAPACITY * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) RECORD_SIZE);
+            buffer.putInt(COUNT_OFFSET, 0);
+            recordCount = 0;
+        } else {
+            map(channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(6) != RECORD_SIZE) {
+                channel.close();
+                throw new IOException(file + " is not a binary appointment log");
+            }
+            recordCount = buffer.getInt(COUNT_OFFSET);
+        }
+    }
+
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    public synchronized int append(String patientName, String doctorName, LocalDate date,
+                                   String time, String status, LocalDateTime createdAt) throws IOException {
+        int doctor = encode(doctorName, doctors, doctorCodes, SymbolTable.doctors(), DOCTOR_PREFIX, Short.MAX_VALUE);
+        int statusCode = encode(status, statuses, statusCodes, SymbolTable.statuses(), STATUS_PREFIX, Byte.MAX_VALUE);
+        byte[] name = truncate(patientName.getBytes(StandardCharsets.UTF_8));
+
+        long end = HEADER_SIZE + (long) (recordCount + 1) * RECORD_SIZE;
+        if (end > buffer.capacity()) {
+            map(Math.max(end, HEADER_SIZE + (long) recordCount * 2 * RECORD_SIZE));
+        }
+
+        int base = offsetOf(recordCount);
+        buffer.putInt(base + EPOCH_DAY, (int) date.toEpochDay());
+        buffer.putShort(base + MINUTE_OF_DAY, (short) parseTime(time));
+        buffer.putShort(base + DOCTOR, (short) doctor);
+        buffer.put(base + STATUS, (byte) statusCode);
+        buffer.put(base + NAME_LENGTH, (byte) name.length);
+        buffer.putLong(base + CREATED_AT, createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        buffer.put(base + NAME, name);
+
+        // Publish the record only once it is fully written
+        buffer.putInt(COUNT_OFFSET, ++recordCount);
+        return recordCount - 1;
+    }
+
+    /** Overwrites the status of a record in place. */
+    public synchronized void updateStatus(int recordNumber, String status) throws IOException {
+        checkRecord(recordNumber);
+        int statusCode = encode(status, statuses, statusCodes, SymbolTable.statuses(), STATUS_PREFIX, Byte.MAX_VALUE);
+        buffer.put(offsetOf(recordNumber) + STATUS, (byte) statusCode);
+    }
+
+    /** Overwrites the date and time of a record in place. */
+    public synchronized void reschedule(int recordNumber, LocalDate date, String time) {
+        checkRecord(recordNumber);
+        int base = offsetOf(recordNumber);
+        buffer.putInt(base + EPOCH_DAY, (int) date.toEpochDay());
+        buffer.putShort(base + MINUTE_OF_DAY, (short) parseTime(time));
+    }
+
+    /** Reads a single record by number: one offset computation, no scan. */
+    public synchronized SimpleAppointment read(int recordNumber) {
+        checkRecord(recordNumber);
+        RecordView view = new RecordView();
+        view.base = offsetOf(recordNumber);
+        view.recordNumber = recordNumber;
+        return view.toAppointment();
+    }
+
+    /** Visits every record directly in the mapped file without copying it. */
+    public synchronized void scan(RecordVisitor visitor) {
+        RecordView view = new RecordView();
+        for (int i = 0; i < recordCount; i++) {
+            view.base = offsetOf(i);
+            view.recordNumber = i;
+            visitor.visit(view);
+        }
+    }
+
+    public synchronized String doctorName(int code) {
+        return SymbolTable.doctors().nameOf(doctors.get(code));
+    }
+
+    public synchronized String status(int code) {
+        return SymbolTable.statuses().nameOf(statuses.get(code));
+    }
+
+    /** Flushes mapped pages to disk. */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * One-shot conversion of pipe-delimited appointment files (the monthly
+     * segments, or a pre-segment appointments.txt) into a binary log. Only
+     * the latest version of each appointment is kept, in id order; record
+     * numbers are assigned densely from there. Returns the number of records
+     * written.
+     */
+    public static int convertFromText(List<File> textFiles, File binaryFile) throws IOException {
+        Map<Integer, AppointmentRecords.Version> latest = AppointmentRecords.readLatest(textFiles);
+        try (BinaryAppointmentLog log = new BinaryAppointmentLog(binaryFile)) {
+            for (AppointmentRecords.Version version : latest.values()) {
+                SimpleAppointment a = version.appointment;
+                log.append(a.getPatientName(), a.getDoctorName(), a.getAppointmentDate(),
+                        a.getAppointmentTime(), a.getStatus(), LocalDateTime.parse(version.createdAt));
+            }
+        }
+        return latest.size();
+    }
+
+    /** Usage: BinaryAppointmentLog [source.txt ... [target.bin]], by default the clinic_data segments */
+    public static void main(String[] args) throws IOException {
+        List<File> sources = new ArrayList<>();
+        File target = new File("clinic_data/appointments.bin");
+        if (args.length == 1) {
+            sources.add(new File(args[0]));
+        } else if (args.length > 1) {
+            for (int i = 0; i < args.length - 1; i++) {
+                sources.add(new File(args[i]));
+            }
+            target = new File(args[args.length - 1]);
+        } else {
+            AppointmentSegments segments = new AppointmentSegments(new File("clinic_data"));
+            for (int segment : segments.all()) {
+                sources.add(segments.fileFor(segment));
+            }
+        }
+        if (target.exists()) {
+            System.err.println(target + " already exists, refusing to overwrite it");
+            System.exit(1);
+        }
+        int converted = convertFromText(sources, target);
+        System.out.println("Converted " + converted + " appointments to " + target);
+    }
+
+    static int parseTime(String time) {
+        int colon = time.indexOf(':');
+        if (colon < 1) {
+            throw new IllegalArgumentException("Time must be HH:MM: " + time);
+        }
+        int hours = Integer.parseInt(time.substring(0, colon));
+        int minutes = Integer.parseInt(time.substring(colon + 1));
+        if (hours > 23 || minutes > 59) {
+            throw new IllegalArgumentException("Time must be HH:MM: " + time);
+        }
+        return hours * 60 + minutes;
+    }
+
+    static String formatTime(int minuteOfDay) {
+        return String.format("%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private void checkRecord(int recordNumber) {
+        if (recordNumber < 0 || recordNumber >= recordCount) {
+            throw new IndexOutOfBoundsException("No appointment record " + recordNumber);
+        }
+    }
+
+    private static int offsetOf(int recordNumber) {
+        return HEADER_SIZE + recordNumber * RECORD_SIZE;
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(file + " exceeds the maximum mappable size");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Cuts the name on a character boundary so it fits NAME_CAPACITY bytes
+    private static byte[] truncate(byte[] utf8) {
+        if (utf8.length <= NAME_CAPACITY) {
+            return utf8;
+        }
+        int length = NAME_CAPACITY;
+        while (length > 0 && (utf8[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(utf8, 0, truncated, 0, length);
+        return truncated;
+    }
+
+    private int encode(String value, List<Integer> symbols, Map<String, Integer> codes,
+                       SymbolTable table, String prefix, int maxCode) throws IOException {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (symbols.size() > maxCode) {
+            throw new IOException("Too many distinct values for " + prefix + " in " + dictionaryFile);
+        }
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(dictionaryFile, true), StandardCharsets.UTF_8))) {
+            writer.println(prefix + value);
+            if (writer.checkError()) {
+                throw new IOException("write to " + dictionaryFile + " failed");
+            }
+        }
+        symbols.add(table.intern(value));
+        codes.put(value, symbols.size() - 1);
+        return symbols.size() - 1;
+    }
+
+    private void loadDictionary() throws IOException {
+        if (!dictionaryFile.exists()) {
+            return;
+        }
+        for (String line : Files.readAllLines(dictionaryFile.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith(DOCTOR_PREFIX)) {
+                String doctor = line.substring(DOCTOR_PREFIX.length());
+                doctorCodes.put(doctor, doctors.size());
+                doctors.add(SymbolTable.doctors().intern(doctor));
+            } else if (line.startsWith(STATUS_PREFIX)) {
+                String status = line.substring(STATUS_PREFIX.length());
+                statusCodes.put(status, statuses.size());
+                statuses.add(SymbolTable.statuses().intern(status));
+            }
+        }
+    }
+}
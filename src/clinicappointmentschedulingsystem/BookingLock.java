@@ -0,0 +1,205 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks shared by every process using the same clinic_data directory, held
+ * while a booking checks for conflicts and appends its record.
+ *
+ * Bookings are serialized per doctor, not globally: doctor names hash onto
+ * one of STRIPES byte ranges of booking.lock and only that range is locked,
+ * so bookings for different doctors proceed in parallel. The hash is
+ * String.hashCode(), which is the same in every JVM, and STRIPES is fixed
+ * so every workstation agrees on the layout.
+ *
+ * Each stripe's range holds a version that is bumped after every booking,
+ * status change or reschedule in it. A process that still has the version it last saw knows nobody
+ * else has booked for those doctors since and can skip catching up with
+ * the segment files. The long after the stripes is the next appointment id,
+ * handed out under its own range lock. Readers never take any of them.
+ */
+final class BookingLock implements Closeable {
+    static final int STRIPES = 32;
+    private static final long SEQUENCE_POSITION = (long) STRIPES * Long.BYTES;
+
+    private final FileChannel channel;
+    // FileChannel.lock() is per process, so threads queue here first
+    private final StripedLocks local = new StripedLocks(STRIPES);
+    private final ReentrantLock sequence = new ReentrantLock();
+    private final FileLock[] held = new FileLock[STRIPES];
+    private FileLock heldAll;
+
+    BookingLock(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    int stripeOf(String doctorName) {
+        return local.stripeOf(doctorName);
+    }
+
+    /** Blocks until this thread holds the stripe; returns its current version. */
+    long lock(int stripe) throws IOException {
+        local.get(stripe).lock();
+        try {
+            held[stripe] = acquire(channel, position(stripe), Long.BYTES);
+            return readLong(position(stripe));
+        } catch (IOException | RuntimeException e) {
+            held[stripe] = null;
+            local.get(stripe).unlock();
+            throw e;
+        }
+    }
+
+    /** The stripe's current version, read without its lock, so only a hint. */
+    long version(int stripe) throws IOException {
+        return readLong(position(stripe));
+    }
+
+    /** Records a booking made under the stripe's lock; returns its new version. */
+    long bump(int stripe) throws IOException {
+        long version = readLong(position(stripe)) + 1;
+        writeLong(position(stripe), version);
+        channel.force(false);
+        return version;
+    }
+
+    void unlock(int stripe) {
+        try {
+            if (held[stripe] != null) {
+                held[stripe].release();
+            }
+        } catch (IOException e) {
+            System.err.println("Error releasing booking lock: " + e.getMessage());
+        } finally {
+            held[stripe] = null;
+            local.get(stripe).unlock();
+        }
+    }
+
+    /**
+     * Takes every stripe at once without waiting, for work that must not
+     * overlap any booking; false if anyone holds one of them.
+     */
+    boolean tryLockAll() throws IOException {
+        int taken = 0;
+        try {
+            while (taken < STRIPES && local.get(taken).tryLock()) {
+                taken++;
+            }
+            if (taken == STRIPES) {
+                heldAll = channel.tryLock(0, SEQUENCE_POSITION, false);
+                if (heldAll != null) {
+                    return true;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            releaseLocal(taken);
+            throw e;
+        }
+        releaseLocal(taken);
+        return false;
+    }
+
+    void unlockAll() {
+        try {
+            if (heldAll != null) {
+                heldAll.release();
+            }
+        } catch (IOException e) {
+            System.err.println("Error releasing booking lock: " + e.getMessage());
+        } finally {
+            heldAll = null;
+            releaseLocal(STRIPES);
+        }
+    }
+
+    /**
+     * Hands out count consecutive appointment ids and returns the first,
+     * never below atLeast (the id after the highest this process has seen),
+     * unique across workstations.
+     */
+    int nextIds(int atLeast, int count) throws IOException {
+        sequence.lock();
+        try {
+            FileLock lock = acquire(channel, SEQUENCE_POSITION, Long.BYTES);
+            try {
+                long id = Math.max(readLong(SEQUENCE_POSITION), atLeast);
+                writeLong(SEQUENCE_POSITION, id + count);
+                return (int) id;
+            } finally {
+                lock.release();
+            }
+        } finally {
+            sequence.unlock();
+        }
+    }
+
+    /**
+     * Exclusive lock on a byte range, waiting for it by polling.
+     *
+     * FileChannel.lock() would block in fcntl, and the kernel checks blocked
+     * fcntl locks for deadlock per process, not per thread. Two workstations
+     * whose threads each hold one range and wait for another then get
+     * EDEADLK even though every holder is about to let go. tryLock() never
+     * takes part in that check.
+     */
+    static FileLock acquire(FileChannel channel, long position, long size) throws IOException {
+        long pauseMicros = 50;
+        while (true) {
+            FileLock lock = channel.tryLock(position, size, false);
+            if (lock != null) {
+                return lock;
+            }
+            try {
+                TimeUnit.MICROSECONDS.sleep(pauseMicros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for " + position + "+" + size);
+            }
+            pauseMicros = Math.min(pauseMicros * 2, 5000);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void releaseLocal(int stripes) {
+        for (int i = 0; i < stripes; i++) {
+            local.get(i).unlock();
+        }
+    }
+
+    private static long position(int stripe) {
+        return (long) stripe * Long.BYTES;
+    }
+
+    private long readLong(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    private void writeLong(long position, long value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        buffer.putLong(value).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer booking pipeline: callers publish booking requests into a
+ * bounded ring buffer and one writer thread takes them off in batches,
+ * checks and persists each batch in one go and completes the callers'
+ * futures.
+ *
+ * Publishing is a compare-and-set on the tail sequence, so callers never
+ * block each other on a lock; only the writer touches the store. A full
+ * ring makes callers wait until the writer catches up, which bounds memory
+ * during a rush. The writer keeps the last LATENCY_SAMPLES submit-to-done
+ * latencies for stats().
+ */
+public final class BookingPipeline {
+    private static final int LATENCY_SAMPLES = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** Books a batch of requests in order, returning one result per request. */
+    interface Writer {
+        List<BookingResult> bookAll(List<Request> requests);
+    }
+
+    static final class Request {
+        final String patientName;
+        final String doctorName;
+        final LocalDate date;
+        final String time;
+        final long submittedNanos = System.nanoTime();
+        final CompletableFuture<BookingResult> result = new CompletableFuture<>();
+
+        Request(String patientName, String doctorName, LocalDate date, String time) {
+            this.patientName = patientName;
+            this.doctorName = doctorName;
+            this.date = date;
+            this.time = time;
+        }
+    }
+
+    /** Snapshot of the pipeline's queue depth and latency percentiles. */
+    public static final class Stats {
+        public final long queueDepth;
+        public final long completed;
+        public final long p50Micros;
+        public final long p90Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+
+        Stats(long queueDepth, long completed, long[] sortedMicros) {
+            this.queueDepth = queueDepth;
+            this.completed = completed;
+            this.p50Micros = percentile(sortedMicros, 50);
+            this.p90Micros = percentile(sortedMicros, 90);
+            this.p99Micros = percentile(sortedMicros, 99);
+            this.maxMicros = sortedMicros.length == 0 ? 0 : sortedMicros[sortedMicros.length - 1];
+        }
+
+        private static long percentile(long[] sorted, int percent) {
+            return sorted.length == 0 ? 0 : sorted[(sorted.length - 1) * percent / 100];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queueDepth=%d completed=%d p50=%dus p90=%dus p99=%dus max=%dus",
+                    queueDepth, completed, p50Micros, p90Micros, p99Micros, maxMicros);
+        }
+    }
+
+    private final AtomicReferenceArray<Request> slots;
+    private final int mask;
+    private final int batchSize;
+    private final Writer writer;
+    private final Thread thread;
+    // Next sequence to claim; only callers advance it
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence to take; only the writer advances it
+    private volatile long head;
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    // Written only by the writer thread, read by stats() on any thread
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+    private final AtomicLong completed = new AtomicLong();
+
+    /** capacity is rounded up to a power of two. */
+    BookingPipeline(int capacity, int batchSize, Writer writer) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = writer;
+        this.thread = new Thread(this::run, "booking-pipeline");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Queues a booking, waiting while the ring is full. */
+    CompletableFuture<BookingResult> submit(String patientName, String doctorName,
+                                            LocalDate date, String time) {
+        Request request = new Request(patientName, doctorName, date, time);
+        while (true) {
+            if (closed) {
+                request.result.complete(BookingResult.FAILED);
+                return request.result;
+            }
+            long sequence = tail.get();
+            if (sequence - head > mask) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            } else if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.set((int) (sequence & mask), request);
+                if (idle) {
+                    LockSupport.unpark(thread);
+                }
+                if (closed) {
+                    // The writer may have stopped before this was published
+                    awaitWriter();
+                    failLeftovers();
+                }
+                return request.result;
+            }
+        }
+    }
+
+    public Stats stats() {
+        long done = completed.get();
+        int samples = (int) Math.min(done, LATENCY_SAMPLES);
+        long[] sorted = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        return new Stats(Math.max(0, tail.get() - head), done, sorted);
+    }
+
+    /**
+     * Stops the writer once the requests already queued are done and waits
+     * for it; requests submitted from now on fail.
+     */
+    void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        awaitWriter();
+        failLeftovers();
+    }
+
+    private void awaitWriter() {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fails requests published after the writer saw the ring empty and stopped
+    private synchronized void failLeftovers() {
+        if (thread.isAlive()) {
+            return;
+        }
+        for (long sequence = head; sequence < tail.get(); sequence++) {
+            int index = (int) (sequence & mask);
+            Request request;
+            // The caller that claimed the sequence is about to fill it in
+            while ((request = slots.get(index)) == null) {
+                Thread.onSpinWait();
+            }
+            slots.set(index, null);
+            head = sequence + 1;
+            request.result.complete(BookingResult.FAILED);
+        }
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        while (true) {
+            long next = head;
+            while (batch.size() < batchSize) {
+                int index = (int) ((next + batch.size()) & mask);
+                Request request = slots.get(index);
+                if (request == null) {
+                    break;
+                }
+                slots.set(index, null);
+                batch.add(request);
+            }
+            if (batch.isEmpty()) {
+                if (closed && tail.get() == next) {
+                    return;
+                }
+                // A claimed slot may not be filled in yet; the park is short
+                // and bounded, so a missed unpark only costs a millisecond
+                idle = true;
+                if (slots.get((int) (next & mask)) == null) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            head = next + batch.size();
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<Request> batch) {
+        List<BookingResult> results;
+        try {
+            results = writer.bookAll(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Error booking appointments: " + e.getMessage());
+            results = null;
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            latencies.set((int) (completed.get() % LATENCY_SAMPLES), (now - request.submittedNanos) / 1000);
+            completed.incrementAndGet();
+            request.result.complete(results != null ? results.get(i) : BookingResult.FAILED);
+        }
+    }
+}
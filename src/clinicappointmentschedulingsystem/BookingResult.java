@@ -0,0 +1,11 @@
+package clinicappointmentschedulingsystem;
+
+/** Outcome of AppointmentRepository.tryBook() and of each saveAppointments() request. */
+public enum BookingResult {
+    /** The appointment was saved. */
+    BOOKED,
+    /** The doctor already has an appointment in that slot; nothing was saved. */
+    CONFLICT,
+    /** The appointment could not be saved; the cause was printed. */
+    FAILED
+}
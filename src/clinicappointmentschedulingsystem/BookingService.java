@@ -0,0 +1,108 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs data-layer calls off the JavaFX Application Thread and hands back
+ * CompletableFutures, so a slow database round trip or a large file scan
+ * never stalls rendering.
+ *
+ * Every call gets its own virtual thread; blocking in JDBC or file I/O only
+ * parks that thread, so there is no pool to size. UI code continues on the
+ * FX thread with thenAcceptAsync(..., Platform::runLater) or
+ * whenCompleteAsync(..., Platform::runLater).
+ *
+ * Calls go to AppointmentRepositories.getDefault(), looked up on the first
+ * call's virtual thread, so even opening the backend at startup happens in
+ * the background.
+ */
+public final class BookingService {
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Created on first use; class initialization makes that happen exactly once
+    private static class Holder {
+        static final BookingService INSTANCE = new BookingService();
+    }
+
+    private BookingService() {
+    }
+
+    /** The one instance the controllers share. */
+    public static BookingService getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /** Runs call on a virtual thread; the future fails if it throws. */
+    public static <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, EXECUTOR);
+    }
+
+    /** Runs call against the configured repository on a virtual thread. */
+    public <T> CompletableFuture<T> withRepository(Function<AppointmentRepository, T> call) {
+        return supply(() -> call.apply(AppointmentRepositories.getDefault()));
+    }
+
+    public CompletableFuture<Boolean> authenticateUser(String username, String password) {
+        return withRepository(repository -> repository.authenticateUser(username, password));
+    }
+
+    public CompletableFuture<List<String>> getAllDoctors() {
+        return withRepository(AppointmentRepository::getAllDoctors);
+    }
+
+    public CompletableFuture<BookingResult> tryBook(String patientName, String doctorName,
+                                                    LocalDate date, String time) {
+        return withRepository(repository -> repository.tryBook(patientName, doctorName, date, time));
+    }
+
+    public CompletableFuture<Boolean> cancelAppointment(int appointmentId) {
+        return withRepository(repository -> repository.cancelAppointment(appointmentId));
+    }
+
+    public CompletableFuture<Boolean> rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        return withRepository(repository -> repository.rescheduleAppointment(appointmentId, date, time));
+    }
+
+    /** Up to limit matching appointments, read with streamAppointments(). */
+    public CompletableFuture<List<Appointment>> findAppointments(Predicate<? super Appointment> filter, long limit) {
+        return withRepository(repository -> {
+            try (Stream<Appointment> appointments = repository.streamAppointments(filter, limit)) {
+                return appointments.collect(Collectors.toList());
+            }
+        });
+    }
+
+    /** pageSize appointments, newest first, after cursor; null starts at the first page. */
+    public CompletableFuture<AppointmentPage> getAppointmentsPage(int pageSize, String cursor) {
+        return withRepository(repository -> repository.getAppointmentsPage(pageSize, cursor));
+    }
+
+    public CompletableFuture<List<Appointment>> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
+        return withRepository(repository -> repository.getAppointmentsByDateRange(startDate, endDate));
+    }
+
+    /**
+     * Writes a date range to file as CSV or NDJSON with AppointmentExporter;
+     * the future holds the number of appointments written, or -1.
+     */
+    public CompletableFuture<Long> exportAppointments(LocalDate startDate, LocalDate endDate, File file,
+                                                      AppointmentExporter.Format format) {
+        return withRepository(repository -> AppointmentExporter.export(repository, startDate, endDate, file, format));
+    }
+
+    /** The future holds a Runnable that removes the listener again; run it when the view closes. */
+    public CompletableFuture<Runnable> addAppointmentListener(Consumer<List<Appointment>> listener) {
+        return withRepository(repository -> repository.addAppointmentListener(listener));
+    }
+}
@@ -1,12 +1,15 @@
 package clinicappointmentschedulingsystem;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
+import javafx.stage.WindowEvent;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ClinicAppointmentController {
 
@@ -25,21 +28,55 @@ public class ClinicAppointmentController {
     @FXML
     private TextArea txtOutput;
 
-    private SimpleDataStore dataStore;
+    // Every data call goes through here so none of them blocks the FX thread;
+    // results come back via Platform.runLater
+    private final BookingService bookingService = BookingService.getDefault();
+    
+    // Removes this view's appointment listener; only used on the FX thread
+    private Runnable removeListener;
+    private boolean closed;
 
     // Runs automatically when FXML loads
     @FXML
     private void initialize() {
-        dataStore = SimpleDataStore.getInstance();
+        datePicker.setValue(LocalDate.now());
         
         // Load doctors from data store
-        List<String> doctors = dataStore.getAllDoctors();
-        cmbDoctor.getItems().addAll(doctors);
-        
-        datePicker.setValue(LocalDate.now());
+        bookingService.getAllDoctors()
+                .thenAcceptAsync(doctors -> cmbDoctor.getItems().addAll(doctors), Platform::runLater);
         
         // Load existing appointments
         loadAppointments();
+        
+        // Show bookings made on other workstations as they arrive, until this
+        // view leaves its window or the window closes
+        bookingService.addAppointmentListener(changed -> Platform.runLater(() -> showChanges(changed)))
+                .thenAcceptAsync(remove -> {
+            if (closed) {
+                remove.run();
+            } else {
+                removeListener = remove;
+            }
+        }, Platform::runLater);
+        txtOutput.sceneProperty().addListener((sceneProperty, oldScene, scene) -> {
+            if (scene != null) {
+                scene.windowProperty().addListener((windowProperty, oldWindow, window) -> {
+                    if (window == null) {
+                        stopListening();
+                    } else {
+                        window.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> stopListening());
+                    }
+                });
+            }
+        });
+    }
+    
+    private void stopListening() {
+        closed = true;
+        if (removeListener != null) {
+            removeListener.run();
+            removeListener = null;
+        }
     }
 
     // Schedule appointment button
@@ -62,14 +99,24 @@ public class ClinicAppointmentController {
             return;
         }
 
-        // Check for appointment conflicts
-        if (dataStore.hasConflict(doctor, date, time)) {
+        // Check for a conflict and save in one step, so another workstation
+        // cannot take the slot in between
+        txtOutput.setText("⏳ Scheduling appointment...");
+        bookingService.tryBook(patient, doctor, date, time).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                System.err.println("Error booking appointment: " + error.getMessage());
+            }
+            showBookingResult(error != null ? BookingResult.FAILED : result, doctor, date, time);
+        }, Platform::runLater);
+    }
+
+    private void showBookingResult(BookingResult result, String doctor, LocalDate date, String time) {
+        if (result == BookingResult.CONFLICT) {
             txtOutput.setText("❌ Appointment conflict! " + doctor + " is already booked at " + time + " on " + date);
             return;
         }
 
-        // Save appointment to data store
-        if (dataStore.saveAppointment(patient, doctor, date, time)) {
+        if (result == BookingResult.BOOKED) {
             txtOutput.setText("✅ Appointment scheduled successfully!\n");
             loadAppointments(); // Refresh the appointments list
             
@@ -93,20 +140,44 @@ public class ClinicAppointmentController {
         txtOutput.clear();
     }
     
-    // Load all appointments from data store
+    // Load all appointments from data store; the text is built in the background
     private void loadAppointments() {
-        List<SimpleAppointment> appointments = dataStore.getAllAppointments();
+        bookingService.withRepository(this::renderAppointments).whenCompleteAsync((text, error) -> {
+            if (error != null) {
+                System.err.println("Error loading appointments: " + error.getMessage());
+                txtOutput.setText("❌ Error loading appointments.");
+            } else {
+                txtOutput.setText(text);
+            }
+        }, Platform::runLater);
+    }
+    
+    private String renderAppointments(AppointmentRepository repository) {
         StringBuilder output = new StringBuilder();
         
-        if (appointments.isEmpty()) {
-            output.append("No appointments scheduled yet.\n");
-        } else {
-            output.append("=== SCHEDULED APPOINTMENTS ===\n\n");
-            for (SimpleAppointment appointment : appointments) {
+        // Render straight off the stream instead of materializing every appointment
+        try (Stream<Appointment> appointments = repository.streamAppointments(apt -> true, Long.MAX_VALUE)) {
+            appointments.forEach(appointment -> {
+                if (output.length() == 0) {
+                    output.append("=== SCHEDULED APPOINTMENTS ===\n\n");
+                }
                 output.append(appointment.toString()).append("\n");
-            }
+            });
         }
         
-        txtOutput.setText(output.toString());
+        if (output.length() == 0) {
+            output.append("No appointments scheduled yet.\n");
+        }
+        
+        return output.toString();
+    }
+    
+    // Append appointments added or changed on another workstation
+    private void showChanges(List<Appointment> changed) {
+        StringBuilder output = new StringBuilder();
+        for (Appointment appointment : changed) {
+            output.append("🔄 ").append(appointment.toString()).append("\n");
+        }
+        txtOutput.appendText(output.toString());
     }
 }
\ No newline at end of file
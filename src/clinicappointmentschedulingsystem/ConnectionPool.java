@@ -0,0 +1,372 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small JDBC connection pool, so each database call reuses an open
+ * connection instead of paying a TCP connect and authentication.
+ *
+ * getConnection() hands out a proxy whose close() returns the physical
+ * connection to the pool (rolled back, and back in autocommit and
+ * read-write mode, if the borrower changed them). At most maxSize
+ * connections exist; a borrower that cannot get one within the
+ * acquisition timeout gets an SQLException. A background task closes
+ * connections idle longer than the idle timeout, keeping at least
+ * minSize open, and reports connections borrowed for longer than the
+ * leak threshold along with the thread that borrowed them and where that
+ * thread is by then. Borrowing only records the time and the thread; no
+ * stack is captured unless a leak is reported.
+ * Connections that sat idle for a while are checked with the validation
+ * query before they are handed out again.
+ *
+ * Settings come from the db.pool.* keys of the configuration passed in:
+ * minSize, maxSize, idleTimeoutMillis, acquireTimeoutMillis,
+ * leakThresholdMillis, validateAfterMillis, validationQuery, and initSql,
+ * semicolon-separated statements run once on every new connection (e.g.
+ * session settings or SQLite pragmas).
+ */
+public final class ConnectionPool implements Closeable {
+
+    /** Snapshot of the pool's size and acquisition metrics. */
+    public static final class Stats {
+        public final int active;
+        public final int idle;
+        public final long borrowed;
+        public final long created;
+        public final long evicted;
+        public final long timeouts;
+        public final long leaks;
+        public final long averageWaitMicros;
+        public final long maxWaitMicros;
+
+        Stats(ConnectionPool pool) {
+            this.active = pool.borrowedConnections.size();
+            this.idle = pool.idle.size();
+            this.borrowed = pool.borrowCount.get();
+            this.created = pool.createCount.get();
+            this.evicted = pool.evictCount.get();
+            this.timeouts = pool.timeoutCount.get();
+            this.leaks = pool.leakCount.get();
+            this.averageWaitMicros = borrowed == 0 ? 0 : pool.waitNanos.get() / borrowed / 1000;
+            this.maxWaitMicros = pool.maxWaitNanos.get() / 1000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d idle=%d borrowed=%d created=%d evicted=%d timeouts=%d leaks=%d "
+                    + "avgWait=%dus maxWait=%dus", active, idle, borrowed, created, evicted, timeouts, leaks,
+                    averageWaitMicros, maxWaitMicros);
+        }
+    }
+
+    // A physical connection and when it was last returned or borrowed
+    private static final class Pooled {
+        final Connection connection;
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        volatile long borrowedMillis;
+        volatile Thread borrower;
+        volatile boolean leakReported;
+
+        Pooled(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long validateAfterMillis;
+    private final String validationQuery;
+    private final String[] initSql;
+
+    private final Semaphore permits;
+    // Most recently returned first, so busy periods reuse warm connections
+    private final ConcurrentLinkedDeque<Pooled> idle = new ConcurrentLinkedDeque<>();
+    private final Map<Pooled, Boolean> borrowedConnections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createCount = new AtomicLong();
+    private final AtomicLong evictCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * connectionProperties go to the driver (user, password, ...); config
+     * supplies the db.pool.* settings.
+     */
+    public ConnectionPool(String url, Properties connectionProperties, Properties config) {
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.maxSize = Math.max(1, intSetting(config, "db.pool.maxSize", 8));
+        this.minSize = Math.min(maxSize, Math.max(0, intSetting(config, "db.pool.minSize", 1)));
+        this.idleTimeoutMillis = longSetting(config, "db.pool.idleTimeoutMillis", 300_000L);
+        this.acquireTimeoutMillis = longSetting(config, "db.pool.acquireTimeoutMillis", 5_000L);
+        this.leakThresholdMillis = longSetting(config, "db.pool.leakThresholdMillis", 60_000L);
+        this.validateAfterMillis = longSetting(config, "db.pool.validateAfterMillis", 5_000L);
+        this.validationQuery = config.getProperty("db.pool.validationQuery", "SELECT 1").trim();
+        this.initSql = config.getProperty("db.pool.initSql", "").split(";");
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000L, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Borrows a connection; close() it to give it back. */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection (" + new Stats(this) + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted waiting for a database connection", e);
+        }
+        try {
+            Pooled pooled = takeIdle();
+            if (pooled == null) {
+                pooled = create();
+            }
+            long waited = System.nanoTime() - start;
+            borrowCount.incrementAndGet();
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            pooled.borrowedMillis = System.currentTimeMillis();
+            pooled.borrower = Thread.currentThread();
+            pooled.leakReported = false;
+            borrowedConnections.put(pooled, Boolean.TRUE);
+            return wrap(pooled);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(this);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        Pooled pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    // An idle connection that still works, closing any that do not
+    private Pooled takeIdle() {
+        Pooled pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsedMillis < validateAfterMillis || isValid(pooled)) {
+                return pooled;
+            }
+            closeQuietly(pooled);
+            evictCount.incrementAndGet();
+        }
+        return null;
+    }
+
+    private Pooled create() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, connectionProperties);
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : initSql) {
+                if (!sql.trim().isEmpty()) {
+                    stmt.execute(sql.trim());
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        createCount.incrementAndGet();
+        return new Pooled(connection);
+    }
+
+    private boolean isValid(Pooled pooled) {
+        try {
+            if (validationQuery.isEmpty()) {
+                return pooled.connection.isValid((int) Math.max(1, acquireTimeoutMillis / 1000));
+            }
+            try (Statement stmt = pooled.connection.createStatement()) {
+                stmt.execute(validationQuery);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(Pooled pooled) {
+        if (borrowedConnections.remove(pooled) == null) {
+            return;
+        }
+        boolean reusable = !closed;
+        try {
+            if (reusable && !pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (reusable && pooled.connection.isReadOnly()) {
+                pooled.connection.setReadOnly(false);
+            }
+            reusable = reusable && !pooled.connection.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            pooled.lastUsedMillis = System.currentTimeMillis();
+            pooled.borrower = null;
+            idle.offerFirst(pooled);
+        } else {
+            closeQuietly(pooled);
+        }
+        permits.release();
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            // Oldest idle connections are at the back
+            while (idle.size() > minSize) {
+                Pooled oldest = idle.peekLast();
+                if (oldest == null || now - oldest.lastUsedMillis < idleTimeoutMillis || !idle.remove(oldest)) {
+                    break;
+                }
+                closeQuietly(oldest);
+                evictCount.incrementAndGet();
+            }
+            if (leakThresholdMillis > 0) {
+                for (Pooled pooled : borrowedConnections.keySet()) {
+                    Thread borrower = pooled.borrower;
+                    if (!pooled.leakReported && borrower != null
+                            && now - pooled.borrowedMillis > leakThresholdMillis) {
+                        pooled.leakReported = true;
+                        leakCount.incrementAndGet();
+                        reportLeak(borrower, now - pooled.borrowedMillis);
+                    }
+                }
+            }
+            while (!closed && idle.size() + borrowedConnections.size() < minSize) {
+                idle.offerLast(create());
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Connection pool housekeeping error: " + e.getMessage());
+        }
+    }
+
+    // The stack is taken only now, and shows where the borrower has got to
+    private static void reportLeak(Thread borrower, long heldMillis) {
+        StringBuilder report = new StringBuilder("Possible connection leak: borrowed ")
+                .append(heldMillis).append(" ms ago by thread \"").append(borrower.getName())
+                .append("\" and not closed");
+        StackTraceElement[] stack = borrower.getStackTrace();
+        if (stack.length == 0) {
+            report.append("; the thread has ended");
+        }
+        for (StackTraceElement frame : stack) {
+            report.append(System.lineSeparator()).append("\tat ").append(frame);
+        }
+        System.err.println(report);
+    }
+
+    private static void closeQuietly(Pooled pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    // Proxy that returns the connection on close() and refuses use afterwards
+    private Connection wrap(Pooled pooled) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            giveBack(pooled);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || pooled.connection.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + pooled.connection;
+                    default:
+                        if (released) {
+                            throw new SQLException("connection has been returned to the pool");
+                        }
+                        try {
+                            return method.invoke(pooled.connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+
+    private static int intSetting(Properties config, String key, int defaultValue) {
+        return (int) longSetting(config, key, defaultValue);
+    }
+
+    private static long longSetting(Properties config, String key, long defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid " + key + " '" + value + "', using " + defaultValue);
+            return defaultValue;
+        }
+    }
+}
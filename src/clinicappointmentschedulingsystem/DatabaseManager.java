@@ -4,123 +4,217 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-public class DatabaseManager {
+public class DatabaseManager implements AppointmentRepository {
     private static final String DB_URL = "jdbc:sqlite:clinic.db";
-    private static DatabaseManager instance;
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String CONFLICT_FILTER_PROPERTY = "clinic.conflictFilter";
+    private static final String CONFLICT_FILTER_COUNTERS_PROPERTY = "clinic.conflictFilter.counters";
+    private static final String READERS_PROPERTY = "clinic.sqlite.readers";
+    // Run on every connection. WAL lets reads proceed while the writer commits and
+    // NORMAL only syncs at checkpoints; the page cache and memory map keep hot pages
+    // of clinic.db in memory instead of re-reading them per connection. SQLite only
+    // checks the doctor_id and patient_id references with foreign_keys on
+    private static final String PRAGMAS = "PRAGMA busy_timeout=5000; PRAGMA journal_mode=WAL; "
+            + "PRAGMA synchronous=NORMAL; PRAGMA cache_size=-16384; PRAGMA mmap_size=268435456; "
+            + "PRAGMA foreign_keys=ON";
+    // Names come from doctors and patients, so a rename shows on every appointment
+    private static final String SELECT_APPOINTMENTS = "SELECT a.id, p.name AS patient_name, d.name AS doctor_name, "
+            + "a.doctor_id, a.patient_id, a.patient_phone, a.appointment_date, a.appointment_time, a.status, a.notes "
+            + "FROM appointments a "
+            + "JOIN doctors d ON d.id = a.doctor_id JOIN patients p ON p.id = a.patient_id";
+    // The names are kept as booked. The patient is found by name and phone;
+    // one not yet in patients gets a null id here, and the insert trigger
+    // from V4__patient_by_name_and_phone.sql adds them
+    private static final String INSERT_APPOINTMENT = "INSERT INTO appointments "
+            + "(patient_name, patient_phone, doctor_name, doctor_id, patient_id, appointment_date, appointment_time, notes) "
+            + "VALUES (?, ?, ?, ?, (SELECT MIN(id) FROM patients WHERE name = ? AND phone IS ?), ?, ?, ?)";
+    // Null when disabled or when it could not be loaded; hasConflict() then always queries.
+    // Keyed by doctor id, so renaming a doctor does not hide their booked slots
+    private volatile SlotBloomFilter conflictFilter;
+    // Doctor ids by name; there are few doctors, so each name is looked up once
+    private final Map<String, Integer> doctorIds = new ConcurrentHashMap<>();
+    // Long-lived connections for queries; anything that writes goes through the writer thread
+    private final ConnectionPool readers;
+    // SQLite allows one writer at a time, so writes queue here instead of on the file lock
+    private final ExecutorService writer;
+    private volatile Thread writerThread;
+    // Only used on the writer thread
+    private Connection writeConnection;
+    
+    /** Work done with one connection. */
+    private interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+    
+    // Created on first use; class initialization makes that happen exactly once
+    private static class Holder {
+        static final DatabaseManager INSTANCE = new DatabaseManager();
+    }
     
     private DatabaseManager() {
+        Properties config = new Properties();
+        config.setProperty("db.pool.minSize", "1");
+        config.setProperty("db.pool.maxSize", String.valueOf(Integer.getInteger(READERS_PROPERTY, 4)));
+        config.setProperty("db.pool.initSql", PRAGMAS);
+        readers = new ConnectionPool(DB_URL, new Properties(), config);
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "sqlite-writer");
+            thread.setDaemon(true);
+            writerThread = thread;
+            return thread;
+        });
         initializeDatabase();
     }
     
     public static DatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new DatabaseManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     private void initializeDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            createTables(conn);
-            insertDefaultData(conn);
+        try {
+            write(conn -> {
+                SchemaMigrator.SQLITE.migrate(conn);
+                // Another process writing the same clinic.db would book slots the filter
+                // never sees, so it is only used when this is known to be the sole writer
+                if (Boolean.getBoolean(CONFLICT_FILTER_PROPERTY)) {
+                    conflictFilter = loadConflictFilter(conn);
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.err.println("Database initialization error: " + e.getMessage());
         }
     }
     
-    private void createTables(Connection conn) throws SQLException {
-        // Users table
-        String createUsersTable = """
-            CREATE TABLE IF NOT EXISTS users (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                username TEXT UNIQUE NOT NULL,
-                password TEXT NOT NULL,
-                role TEXT NOT NULL DEFAULT 'staff',
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Doctors table
-        String createDoctorsTable = """
-            CREATE TABLE IF NOT EXISTS doctors (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                name TEXT NOT NULL,
-                specialization TEXT,
-                phone TEXT,
-                email TEXT,
-                active BOOLEAN DEFAULT 1
-            )
-        """;
-        
-        // Patients table
-        String createPatientsTable = """
-            CREATE TABLE IF NOT EXISTS patients (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                name TEXT NOT NULL,
-                phone TEXT,
-                email TEXT,
-                address TEXT,
-                date_of_birth DATE,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Appointments table
-        String createAppointmentsTable = """
-            CREATE TABLE IF NOT EXISTS appointments (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                patient_name TEXT NOT NULL,
-                doctor_name TEXT NOT NULL,
-                appointment_date DATE NOT NULL,
-                appointment_time TEXT NOT NULL,
-                status TEXT DEFAULT 'scheduled',
-                notes TEXT,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        conn.createStatement().execute(createUsersTable);
-        conn.createStatement().execute(createDoctorsTable);
-        conn.createStatement().execute(createPatientsTable);
-        conn.createStatement().execute(createAppointmentsTable);
+    /**
+     * Runs work on the writer thread with its connection and waits for it,
+     * so writes never contend for SQLite's write lock. Called from the
+     * writer thread itself it just runs.
+     */
+    private <T> T write(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == writerThread) {
+            return work.run(writeConnection());
+        }
+        Future<T> result = writer.submit(() -> work.run(writeConnection()));
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the database writer", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException(e.getCause());
+        }
     }
     
-    private void insertDefaultData(Connection conn) throws SQLException {
-        // Insert default admin user if not exists
-        String checkUser = "SELECT COUNT(*) FROM users WHERE username = 'admin'";
-        try (PreparedStatement stmt = conn.prepareStatement(checkUser)) {
+    // Opened on first use and reopened if it was lost
+    private Connection writeConnection() throws SQLException {
+        if (writeConnection == null || writeConnection.isClosed()) {
+            Connection conn = DriverManager.getConnection(DB_URL);
+            try (Statement stmt = conn.createStatement()) {
+                for (String pragma : PRAGMAS.split(";")) {
+                    stmt.execute(pragma.trim());
+                }
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            writeConnection = conn;
+        }
+        return writeConnection;
+    }
+    
+    private SlotBloomFilter loadConflictFilter(Connection conn) throws SQLException {
+        // Past slots are not loaded; the filter sends checks for them to the database
+        LocalDate first = LocalDate.now();
+        SlotBloomFilter filter = new SlotBloomFilter(Integer.getInteger(CONFLICT_FILTER_COUNTERS_PROPERTY, 4096), first);
+        String query = "SELECT doctor_id, appointment_date, appointment_time FROM appointments "
+                + "WHERE appointment_date >= ? AND status != 'cancelled'";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, first.toString());
             ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getInt(1) == 0) {
-                String insertAdmin = "INSERT INTO users (username, password, role) VALUES ('admin', 'clinic123', 'admin')";
-                conn.createStatement().execute(insertAdmin);
+            while (rs.next()) {
+                filter.add(filterKey(rs.getInt(1)), LocalDate.parse(rs.getString(2)), rs.getString(3));
             }
         }
-        
-        // Insert default doctors if not exists
-        String checkDoctors = "SELECT COUNT(*) FROM doctors";
-        try (PreparedStatement stmt = conn.prepareStatement(checkDoctors)) {
+        return filter;
+    }
+    
+    private static String filterKey(int doctorId) {
+        return Integer.toString(doctorId);
+    }
+    
+    /**
+     * The id of the doctor with this name, or 0 if there is none. With
+     * create set, which only the writer thread may do, an unknown name is
+     * added as an inactive doctor instead, as V3 did for names only found
+     * in old appointments. Not for use inside a transaction, so a rollback
+     * cannot take back an id already cached.
+     */
+    private int doctorId(Connection conn, String doctorName, boolean create) throws SQLException {
+        Integer cached = doctorIds.get(doctorName);
+        if (cached != null) {
+            return cached;
+        }
+        int id = 0;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT MIN(id) FROM doctors WHERE name = ?")) {
+            stmt.setString(1, doctorName);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getInt(1) == 0) {
-                String[] doctors = {
-                    "INSERT INTO doctors (name, specialization) VALUES ('Dr. Smith', 'General Medicine')",
-                    "INSERT INTO doctors (name, specialization) VALUES ('Dr. Johnson', 'Cardiology')",
-                    "INSERT INTO doctors (name, specialization) VALUES ('Dr. Williams', 'Pediatrics')",
-                    "INSERT INTO doctors (name, specialization) VALUES ('Dr. Brown', 'Orthopedics')"
-                };
-                
-                for (String doctor : doctors) {
-                    conn.createStatement().execute(doctor);
-                }
+            if (rs.next()) {
+                id = rs.getInt(1);
             }
         }
+        if (id == 0 && create) {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO doctors (name, active) VALUES (?, 0)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, doctorName);
+                stmt.executeUpdate();
+                ResultSet keys = stmt.getGeneratedKeys();
+                keys.next();
+                id = keys.getInt(1);
+            }
+        }
+        if (id != 0) {
+            doctorIds.put(doctorName, id);
+        }
+        return id;
+    }
+    
+    private static void bindAppointment(PreparedStatement stmt, AppointmentRequest request, int doctorId)
+            throws SQLException {
+        stmt.setString(1, request.getPatientName());
+        stmt.setString(2, request.getPatientPhone());
+        stmt.setString(3, request.getDoctorName());
+        stmt.setInt(4, doctorId);
+        stmt.setString(5, request.getPatientName());
+        stmt.setString(6, request.getPatientPhone());
+        stmt.setString(7, request.getDate().toString());
+        stmt.setString(8, request.getTime());
+        stmt.setString(9, request.getNotes());
     }
     
     // User authentication
     public boolean authenticateUser(String username, String password) {
         String query = "SELECT COUNT(*) FROM users WHERE username = ? AND password = ?";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = readers.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
             stmt.setString(1, username);
@@ -139,7 +233,7 @@ public class DatabaseManager {
         List<String> doctors = new ArrayList<>();
         String query = "SELECT name FROM doctors WHERE active = 1 ORDER BY name";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = readers.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
             ResultSet rs = stmt.executeQuery();
@@ -155,42 +249,159 @@ public class DatabaseManager {
     
     // Save appointment
     public boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time) {
-        String query = "INSERT INTO appointments (patient_name, doctor_name, appointment_date, appointment_time) VALUES (?, ?, ?, ?)";
+        try {
+            return write(conn -> insertAppointment(conn, new AppointmentRequest(patientName, doctorName, date, time)));
+        } catch (SQLException e) {
+            System.err.println("Error saving appointment: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean insertAppointment(Connection conn, AppointmentRequest request) throws SQLException {
+        int doctorId = doctorId(conn, request.getDoctorName(), true);
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_APPOINTMENT)) {
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindAppointment(stmt, request, doctorId);
             
-            stmt.setString(1, patientName);
-            stmt.setString(2, doctorName);
-            stmt.setString(3, date.toString());
-            stmt.setString(4, time);
-            
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        SlotBloomFilter filter = conflictFilter;
+        if (filter != null) {
+            filter.add(filterKey(doctorId), request.getDate(), request.getTime());
+        }
+        return true;
+    }
+    
+    /**
+     * Books the slot only if nobody holds it. The conflict check and the
+     * insert run together on the writer thread, so no other booking made
+     * through this application can take the slot in between.
+     */
+    public BookingResult tryBook(String patientName, String doctorName, LocalDate date, String time) {
+        return tryBook(new AppointmentRequest(patientName, doctorName, date, time));
+    }
+    
+    @Override
+    public BookingResult tryBook(AppointmentRequest request) {
+        try {
+            return write(conn -> {
+                if (hasConflict(conn, doctorId(conn, request.getDoctorName(), true), request.getDate(),
+                        request.getTime())) {
+                    return BookingResult.CONFLICT;
+                }
+                return insertAppointment(conn, request) ? BookingResult.BOOKED : BookingResult.FAILED;
+            });
         } catch (SQLException e) {
             System.err.println("Error saving appointment: " + e.getMessage());
-            return false;
+            return BookingResult.FAILED;
         }
     }
     
+    /**
+     * Books several appointments in one transaction on the writer thread.
+     * The slots the batch's doctors already hold on the dates involved are
+     * read with one query inside that transaction, each request is checked
+     * against them and against the requests before it, and the accepted
+     * rows go in with one executeBatch(). If the batch fails nothing is
+     * saved and every row reports FAILED.
+     */
+    public List<BookingResult> saveAppointments(List<AppointmentRequest> requests) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return write(conn -> {
+                int[] ids = new int[requests.size()];
+                for (int i = 0; i < requests.size(); i++) {
+                    ids[i] = doctorId(conn, requests.get(i).getDoctorName(), true);
+                }
+                List<BookingResult> results = new ArrayList<>(requests.size());
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_APPOINTMENT)) {
+                    Set<String> taken = bookedSlots(conn, requests, ids);
+                    for (int i = 0; i < requests.size(); i++) {
+                        AppointmentRequest request = requests.get(i);
+                        if (!taken.add(slotKey(ids[i], request.getDate().toString(), request.getTime()))) {
+                            results.add(BookingResult.CONFLICT);
+                            continue;
+                        }
+                        bindAppointment(stmt, request, ids[i]);
+                        stmt.addBatch();
+                        results.add(BookingResult.BOOKED);
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                SlotBloomFilter filter = conflictFilter;
+                for (int i = 0; filter != null && i < requests.size(); i++) {
+                    if (results.get(i) == BookingResult.BOOKED) {
+                        AppointmentRequest request = requests.get(i);
+                        filter.add(filterKey(ids[i]), request.getDate(), request.getTime());
+                    }
+                }
+                return results;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error saving appointments: " + e.getMessage());
+            return new ArrayList<>(Collections.nCopies(requests.size(), BookingResult.FAILED));
+        }
+    }
+    
+    // Slots the batch's doctors hold with non-cancelled appointments between
+    // the earliest and latest requested dates
+    private Set<String> bookedSlots(Connection conn, List<AppointmentRequest> requests, int[] ids)
+            throws SQLException {
+        LocalDate first = requests.get(0).getDate();
+        LocalDate last = first;
+        for (AppointmentRequest request : requests) {
+            first = request.getDate().isBefore(first) ? request.getDate() : first;
+            last = request.getDate().isAfter(last) ? request.getDate() : last;
+        }
+        Set<Integer> doctors = new TreeSet<>();
+        for (int id : ids) {
+            doctors.add(id);
+        }
+        Set<String> slots = new HashSet<>();
+        String query = "SELECT doctor_id, appointment_date, appointment_time FROM appointments WHERE doctor_id IN ("
+                + String.join(", ", Collections.nCopies(doctors.size(), "?"))
+                + ") AND appointment_date BETWEEN ? AND ? AND status != 'cancelled'";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            int parameter = 1;
+            for (int doctor : doctors) {
+                stmt.setInt(parameter++, doctor);
+            }
+            stmt.setString(parameter++, first.toString());
+            stmt.setString(parameter, last.toString());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                slots.add(slotKey(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        return slots;
+    }
+    
+    private static String slotKey(int doctorId, String date, String time) {
+        return doctorId + "|" + date + "|" + time;
+    }
+    
     // Get all appointments
     public List<Appointment> getAllAppointments() {
         List<Appointment> appointments = new ArrayList<>();
-        String query = "SELECT * FROM appointments ORDER BY appointment_date DESC, appointment_time";
+        String query = SELECT_APPOINTMENTS + " ORDER BY a.appointment_date DESC, a.appointment_time";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
+        try (Connection conn = readers.getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                Appointment appointment = new Appointment(
-                    rs.getInt("id"),
-                    rs.getString("patient_name"),
-                    rs.getString("doctor_name"),
-                    LocalDate.parse(rs.getString("appointment_date")),
-                    rs.getString("appointment_time"),
-                    rs.getString("status")
-                );
-                appointments.add(appointment);
+                appointments.add(mapAppointment(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error fetching appointments: " + e.getMessage());
@@ -199,22 +410,255 @@ public class DatabaseManager {
         return appointments;
     }
     
+    /**
+     * Streams appointments off a forward-only result set instead of building
+     * a list, so memory stays flat however many rows there are. The stream
+     * holds a connection until it is closed; use it in try-with-resources.
+     */
+    public Stream<Appointment> streamAppointments(Predicate<? super Appointment> filter, long limit) {
+        String query = SELECT_APPOINTMENTS + " ORDER BY a.appointment_date DESC, a.appointment_time";
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = readers.getConnection();
+            stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            return ResultSetStream.of(conn, stmt, rs, this::mapAppointment).filter(filter).limit(limit);
+        } catch (SQLException e) {
+            System.err.println("Error streaming appointments: " + e.getMessage());
+            ResultSetStream.close(conn, stmt, null);
+            return Stream.empty();
+        }
+    }
+    
+    /**
+     * One page of appointments, newest first, after the cursor's key. The
+     * row-value comparison is a range seek on idx_appointments_date_time,
+     * which SQLite orders by rowid (id) within a slot, so no page scans or
+     * skips the rows before it.
+     */
+    public AppointmentPage getAppointmentsPage(int pageSize, String cursor) {
+        int size = Math.max(pageSize, 1);
+        try {
+            AppointmentPage.Key after = AppointmentPage.Key.parse(cursor);
+            String query = SELECT_APPOINTMENTS
+                + (after == null ? "" : " WHERE (a.appointment_date, a.appointment_time, a.id) < (?, ?, ?)")
+                + " ORDER BY a.appointment_date DESC, a.appointment_time DESC, a.id DESC LIMIT ?";
+            try (Connection conn = readers.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                int index = 1;
+                if (after != null) {
+                    stmt.setString(index++, after.date.toString());
+                    stmt.setString(index++, after.time);
+                    stmt.setInt(index++, after.id);
+                }
+                // One extra row says whether there is a next page
+                stmt.setInt(index, size + 1);
+                
+                List<Appointment> appointments = new ArrayList<>(size);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    if (appointments.size() == size) {
+                        Appointment last = appointments.get(size - 1);
+                        return new AppointmentPage(appointments,
+                            AppointmentPage.cursor(last.getAppointmentDate(), last.getAppointmentTime(), last.getId()));
+                    }
+                    appointments.add(mapAppointment(rs));
+                }
+                return new AppointmentPage(appointments, null);
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error fetching appointments: " + e.getMessage());
+            return AppointmentPage.empty();
+        }
+    }
+    
+    // Reads a row of SELECT_APPOINTMENTS
+    private Appointment mapAppointment(ResultSet rs) throws SQLException {
+        Appointment appointment = new Appointment(
+            rs.getInt("id"),
+            rs.getString("patient_name"),
+            rs.getString("doctor_name"),
+            LocalDate.parse(rs.getString("appointment_date")),
+            rs.getString("appointment_time"),
+            rs.getString("status")
+        );
+        appointment.setDoctorId(rs.getInt("doctor_id"));
+        appointment.setPatientId(rs.getInt("patient_id"));
+        appointment.setPatientPhone(rs.getString("patient_phone"));
+        appointment.setNotes(rs.getString("notes"));
+        return appointment;
+    }
+    
     // Check for appointment conflicts
     public boolean hasConflict(String doctorName, LocalDate date, String time) {
-        String query = "SELECT COUNT(*) FROM appointments WHERE doctor_name = ? AND appointment_date = ? AND appointment_time = ? AND status != 'cancelled'";
+        try (Connection conn = readers.getConnection()) {
+            int doctorId = doctorId(conn, doctorName, false);
+            // Nobody has booked a doctor that does not exist
+            return doctorId != 0 && hasConflict(conn, doctorId, date, time);
+        } catch (SQLException e) {
+            System.err.println("Error checking conflicts: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean hasConflict(Connection conn, int doctorId, LocalDate date, String time) throws SQLException {
+        SlotBloomFilter filter = conflictFilter;
+        if (filter != null && !filter.mightContain(filterKey(doctorId), date, time)) {
+            return false;
+        }
+        String query = "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND appointment_time = ? AND status != 'cancelled'";
         
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, doctorName);
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        
+            stmt.setInt(1, doctorId);
             stmt.setString(2, date.toString());
             stmt.setString(3, time);
             
             ResultSet rs = stmt.executeQuery();
-            return rs.next() && rs.getInt(1) > 0;
+            boolean conflict = rs.next() && rs.getInt(1) > 0;
+            if (!conflict && filter != null) {
+                filter.recordFalsePositive();
+            }
+            return conflict;
+        }
+    }
+    
+    // Update appointment status
+    public boolean updateAppointmentStatus(int appointmentId, String status) {
+        try {
+            return write(conn -> {
+                Appointment old = findAppointment(conn, appointmentId);
+                if (old == null) {
+                    return false;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement("UPDATE appointments SET status = ? WHERE id = ?")) {
+                    stmt.setString(1, status);
+                    stmt.setInt(2, appointmentId);
+                    stmt.executeUpdate();
+                }
+                // Keep the conflict filter in step with which slots are held
+                SlotBloomFilter filter = conflictFilter;
+                boolean wasActive = !"cancelled".equals(old.getStatus());
+                boolean isActive = !"cancelled".equals(status);
+                if (filter != null && wasActive != isActive) {
+                    if (isActive) {
+                        filter.add(filterKey(old.getDoctorId()), old.getAppointmentDate(), old.getAppointmentTime());
+                    } else {
+                        filter.remove(filterKey(old.getDoctorId()), old.getAppointmentDate(), old.getAppointmentTime());
+                    }
+                }
+                return true;
+            });
         } catch (SQLException e) {
-            System.err.println("Error checking conflicts: " + e.getMessage());
+            System.err.println("Error updating appointment status: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Move an appointment to a new slot; fails if that slot is already taken
+    public boolean rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        try {
+            return write(conn -> {
+                Appointment old = findAppointment(conn, appointmentId);
+                if (old == null || "cancelled".equals(old.getStatus())
+                        || hasConflict(conn, old.getDoctorId(), date, time)) {
+                    return false;
+                }
+                String query = "UPDATE appointments SET appointment_date = ?, appointment_time = ? WHERE id = ?";
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    stmt.setString(1, date.toString());
+                    stmt.setString(2, time);
+                    stmt.setInt(3, appointmentId);
+                    stmt.executeUpdate();
+                }
+                SlotBloomFilter filter = conflictFilter;
+                if (filter != null) {
+                    filter.remove(filterKey(old.getDoctorId()), old.getAppointmentDate(), old.getAppointmentTime());
+                    filter.add(filterKey(old.getDoctorId()), date, time);
+                }
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error rescheduling appointment: " + e.getMessage());
             return false;
         }
     }
+    
+    private Appointment findAppointment(Connection conn, int appointmentId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_APPOINTMENTS + " WHERE a.id = ?")) {
+            stmt.setInt(1, appointmentId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? mapAppointment(rs) : null;
+        }
+    }
+    
+    // Get appointments by date range; dates are stored as ISO strings, which sort as dates
+    public List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
+        List<Appointment> appointments = new ArrayList<>();
+        String query = SELECT_APPOINTMENTS + " WHERE a.appointment_date BETWEEN ? AND ? ORDER BY a.appointment_date, a.appointment_time";
+        
+        try (Connection conn = readers.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+            stmt.setString(1, startDate.toString());
+            stmt.setString(2, endDate.toString());
+            
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                appointments.add(mapAppointment(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching appointments by date range: " + e.getMessage());
+        }
+        
+        return appointments;
+    }
+    
+    /**
+     * Streams a date range to action instead of building a list; SQLite
+     * steps through the rows as they are read, STREAM_FETCH_SIZE at a time.
+     */
+    public boolean forEachAppointmentInRange(LocalDate startDate, LocalDate endDate,
+                                             Consumer<? super Appointment> action) {
+        String query = SELECT_APPOINTMENTS + " WHERE a.appointment_date BETWEEN ? AND ? "
+                + "ORDER BY a.appointment_date, a.appointment_time, a.id";
+        
+        try (Connection conn = readers.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            stmt.setString(1, startDate.toString());
+            stmt.setString(2, endDate.toString());
+            
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                action.accept(mapAppointment(rs));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming appointments by date range: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    @Override
+    public String getBackendName() {
+        return "SQLite";
+    }
+    
+    /**
+     * The slot pre-check behind hasConflict(), for its hit/miss counters, or
+     * null unless it was enabled with -Dclinic.conflictFilter=true, which
+     * is only safe while no other process writes to clinic.db.
+     */
+    public SlotBloomFilter getConflictFilter() {
+        return conflictFilter;
+    }
+    
+    /** Usage of the read connections. */
+    public ConnectionPool.Stats getReaderStats() {
+        return readers.stats();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * AppointmentRepository over the clinic_data files. SimpleDataStore keeps
+ * its own SimpleAppointment type, so results are copied into Appointments;
+ * the doctor and status codes carry over as they are.
+ */
+final class FileAppointmentRepository implements AppointmentRepository {
+    private final SimpleDataStore store;
+
+    FileAppointmentRepository(SimpleDataStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean authenticateUser(String username, String password) {
+        return store.authenticateUser(username, password);
+    }
+
+    @Override
+    public List<String> getAllDoctors() {
+        return store.getAllDoctors();
+    }
+
+    @Override
+    public boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time) {
+        return store.saveAppointment(patientName, doctorName, date, time);
+    }
+
+    @Override
+    public BookingResult tryBook(String patientName, String doctorName, LocalDate date, String time) {
+        return store.tryBook(patientName, doctorName, date, time);
+    }
+
+    @Override
+    public List<BookingResult> saveAppointments(List<AppointmentRequest> requests) {
+        return store.saveAppointments(requests);
+    }
+
+    @Override
+    public boolean hasConflict(String doctorName, LocalDate date, String time) {
+        return store.hasConflict(doctorName, date, time);
+    }
+
+    @Override
+    public boolean updateAppointmentStatus(int appointmentId, String status) {
+        return store.updateAppointmentStatus(appointmentId, status);
+    }
+
+    @Override
+    public boolean cancelAppointment(int appointmentId) {
+        return store.cancelAppointment(appointmentId);
+    }
+
+    @Override
+    public boolean rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        return store.rescheduleAppointment(appointmentId, date, time);
+    }
+
+    @Override
+    public List<Appointment> getAllAppointments() {
+        return toAppointments(store.getAllAppointments());
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
+        return toAppointments(store.getAppointmentsByDateRange(startDate, endDate));
+    }
+
+    @Override
+    public Stream<Appointment> streamAppointments(Predicate<? super Appointment> filter, long limit) {
+        return store.streamAppointments(appointment -> true, Long.MAX_VALUE)
+                .map(FileAppointmentRepository::toAppointment).filter(filter).limit(limit);
+    }
+
+    // Keyset over the store's sorted index rather than the default full sort
+    @Override
+    public AppointmentPage getAppointmentsPage(int pageSize, String cursor) {
+        AppointmentPage.Key after;
+        try {
+            after = AppointmentPage.Key.parse(cursor);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error fetching appointments: " + e.getMessage());
+            return AppointmentPage.empty();
+        }
+        int size = Math.max(pageSize, 1);
+        List<SimpleAppointment> rows = after == null ? store.getAppointmentsAfter(null, null, 0, size + 1)
+                : store.getAppointmentsAfter(after.date, after.time, after.id, size + 1);
+        List<Appointment> appointments = toAppointments(rows.subList(0, Math.min(rows.size(), size)));
+        if (rows.size() <= size) {
+            return new AppointmentPage(appointments, null);
+        }
+        Appointment last = appointments.get(appointments.size() - 1);
+        return new AppointmentPage(appointments,
+                AppointmentPage.cursor(last.getAppointmentDate(), last.getAppointmentTime(), last.getId()));
+    }
+
+    @Override
+    public Runnable addAppointmentListener(Consumer<List<Appointment>> listener) {
+        return store.addAppointmentListener(changed -> listener.accept(toAppointments(changed)));
+    }
+
+    @Override
+    public String getBackendName() {
+        return "file-based storage";
+    }
+
+    private static List<Appointment> toAppointments(List<SimpleAppointment> appointments) {
+        return appointments.stream().map(FileAppointmentRepository::toAppointment).collect(Collectors.toList());
+    }
+
+    private static Appointment toAppointment(SimpleAppointment appointment) {
+        return new Appointment(appointment.getId(), appointment.getPatientName(), appointment.getDoctorCode(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime(), appointment.getStatusCode());
+    }
+}
@@ -0,0 +1,167 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * AppointmentRepository that keeps everything in memory for the life of
+ * the process, with the same default users and doctors as the file store.
+ * Useful for demos, and as a baseline when comparing backends on the same
+ * workload, since it does no I/O at all.
+ */
+public final class InMemoryAppointmentRepository implements AppointmentRepository {
+    private static final int CANCELLED = SymbolTable.statuses().intern("cancelled");
+
+    private final Map<String, String> users = new HashMap<>();
+    private final List<String> doctors = new ArrayList<>(Arrays.asList(
+            "Dr. Smith", "Dr. Johnson", "Dr. Williams", "Dr. Brown", "Dr. Davis"));
+    private final Map<Integer, Appointment> appointments = new LinkedHashMap<>();
+    // Non-cancelled appointments per doctor|date|time
+    private final Map<String, Integer> bookedSlots = new HashMap<>();
+    private int nextId = 1;
+
+    public InMemoryAppointmentRepository() {
+        users.put("admin", "clinic123");
+        users.put("staff", "staff123");
+    }
+
+    @Override
+    public synchronized boolean authenticateUser(String username, String password) {
+        String storedPassword = users.get(username);
+        return storedPassword != null && storedPassword.equals(password);
+    }
+
+    @Override
+    public synchronized List<String> getAllDoctors() {
+        return new ArrayList<>(doctors);
+    }
+
+    @Override
+    public synchronized boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time) {
+        add(patientName, doctorName, date, time);
+        return true;
+    }
+
+    @Override
+    public synchronized BookingResult tryBook(String patientName, String doctorName,
+                                              LocalDate date, String time) {
+        if (hasConflict(doctorName, date, time)) {
+            return BookingResult.CONFLICT;
+        }
+        saveAppointment(patientName, doctorName, date, time);
+        return BookingResult.BOOKED;
+    }
+
+    @Override
+    public synchronized BookingResult tryBook(AppointmentRequest request) {
+        if (hasConflict(request.getDoctorName(), request.getDate(), request.getTime())) {
+            return BookingResult.CONFLICT;
+        }
+        Appointment appointment = add(request.getPatientName(), request.getDoctorName(), request.getDate(),
+                request.getTime());
+        appointment.setPatientPhone(request.getPatientPhone());
+        appointment.setNotes(request.getNotes());
+        return BookingResult.BOOKED;
+    }
+
+    @Override
+    public synchronized boolean hasConflict(String doctorName, LocalDate date, String time) {
+        return bookedSlots.containsKey(slotKey(doctorName, date, time));
+    }
+
+    @Override
+    public synchronized boolean updateAppointmentStatus(int appointmentId, String status) {
+        Appointment appointment = appointments.get(appointmentId);
+        if (appointment == null) {
+            return false;
+        }
+        boolean wasCancelled = appointment.getStatusCode() == CANCELLED;
+        appointment.setStatus(status);
+        boolean cancelled = appointment.getStatusCode() == CANCELLED;
+        if (wasCancelled != cancelled) {
+            String slot = slotKey(appointment.getDoctorName(), appointment.getAppointmentDate(),
+                    appointment.getAppointmentTime());
+            if (cancelled) {
+                releaseSlot(slot);
+            } else {
+                bookedSlots.merge(slot, 1, Integer::sum);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        Appointment appointment = appointments.get(appointmentId);
+        if (appointment == null || appointment.getStatusCode() == CANCELLED
+                || hasConflict(appointment.getDoctorName(), date, time)) {
+            return false;
+        }
+        releaseSlot(slotKey(appointment.getDoctorName(), appointment.getAppointmentDate(),
+                appointment.getAppointmentTime()));
+        appointment.setAppointmentDate(date);
+        appointment.setAppointmentTime(time);
+        bookedSlots.merge(slotKey(appointment.getDoctorName(), date, time), 1, Integer::sum);
+        return true;
+    }
+
+    @Override
+    public synchronized List<Appointment> getAllAppointments() {
+        return appointments.values().stream().map(InMemoryAppointmentRepository::copy).collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
+        return appointments.values().stream()
+                .filter(appointment -> !appointment.getAppointmentDate().isBefore(startDate)
+                        && !appointment.getAppointmentDate().isAfter(endDate))
+                .sorted(Comparator.comparing(Appointment::getAppointmentDate)
+                        .thenComparing(Appointment::getAppointmentTime))
+                .map(InMemoryAppointmentRepository::copy)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Appointment> streamAppointments(Predicate<? super Appointment> filter, long limit) {
+        return getAllAppointments().stream().filter(filter).limit(limit);
+    }
+
+    @Override
+    public String getBackendName() {
+        return "memory";
+    }
+
+    private Appointment add(String patientName, String doctorName, LocalDate date, String time) {
+        Appointment appointment = new Appointment(nextId++, patientName, doctorName, date, time, "scheduled");
+        appointments.put(appointment.getId(), appointment);
+        bookedSlots.merge(slotKey(doctorName, date, time), 1, Integer::sum);
+        return appointment;
+    }
+
+    private void releaseSlot(String slot) {
+        bookedSlots.computeIfPresent(slot, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // Callers get copies, so they cannot change stored appointments behind the slot counts
+    private static Appointment copy(Appointment appointment) {
+        Appointment copy = new Appointment(appointment.getId(), appointment.getPatientName(),
+                appointment.getDoctorCode(), appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getStatusCode());
+        copy.setPatientPhone(appointment.getPatientPhone());
+        copy.setNotes(appointment.getNotes());
+        return copy;
+    }
+
+    private static String slotKey(String doctorName, LocalDate date, String time) {
+        return doctorName + "|" + date + "|" + time;
+    }
+}
@@ -1,5 +1,6 @@
 package clinicappointmentschedulingsystem;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -30,9 +31,18 @@ public class LoginController {
             return;
         }
 
-        // Authenticate using simple data store
-        SimpleDataStore dataStore = SimpleDataStore.getInstance();
-        if (dataStore.authenticateUser(username, password)) {
+        // Authenticate using simple data store, which loads in the background
+        lblMessage.setText("Signing in...");
+        BookingService.getDefault().authenticateUser(username, password).whenCompleteAsync((valid, error) -> {
+            if (error != null) {
+                System.err.println("Authentication error: " + error.getMessage());
+            }
+            showLoginResult(error == null && valid);
+        }, Platform::runLater);
+    }
+
+    private void showLoginResult(boolean valid) {
+        if (valid) {
             lblMessage.setText("Login successful! Loading main application...");
             lblMessage.setStyle("-fx-text-fill: green;");
             
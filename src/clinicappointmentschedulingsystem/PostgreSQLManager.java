@@ -1,170 +1,221 @@
 package clinicappointmentschedulingsystem;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-public class PostgreSQLManager {
-    // Database connection parameters
+public class PostgreSQLManager implements AppointmentRepository {
+    // Defaults for settings missing from database-config.properties
     private static final String DB_HOST = "localhost";
     private static final String DB_PORT = "5432";
     private static final String DB_NAME = "clinic_db";
     private static final String DB_USER = "clinic_user";
     private static final String DB_PASSWORD = "clinic_password";
+    private static final String CONFIG_FILE_PROPERTY = "clinic.db.config";
+    private static final String DEFAULT_CONFIG_FILE = "database-config.properties";
     
-    private static final String DB_URL = String.format("jdbc:postgresql://%s:%s/%s", DB_HOST, DB_PORT, DB_NAME);
-    private static PostgreSQLManager instance;
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String CONFLICT_FILTER_PROPERTY = "clinic.conflictFilter";
+    private static final String CONFLICT_FILTER_COUNTERS_PROPERTY = "clinic.conflictFilter.counters";
+    private static final int BOOKING_STRIPES = 32;
+    // Schema version that keys appointments by doctor_id and patient_id
+    // (V5__doctor_patient_keys.sql); every query here relies on it
+    private static final int KEYS_VERSION = 5;
+    // Names come from doctors and patients, so a rename shows on every appointment
+    private static final String SELECT_APPOINTMENTS = "SELECT a.id, p.name AS patient_name, d.name AS doctor_name, "
+            + "a.doctor_id, a.patient_id, a.patient_phone, a.appointment_date, a.appointment_time, a.status, a.notes "
+            + "FROM appointments a "
+            + "JOIN doctors d ON d.id = a.doctor_id JOIN patients p ON p.id = a.patient_id";
+    // The names are kept as booked for the desktop apps. The patient is found
+    // by name and phone; one not yet in patients gets a null id here, and the
+    // AFTER INSERT trigger from V6 adds them only if the row goes in
+    private static final String INSERT_APPOINTMENT = "INSERT INTO appointments "
+            + "(patient_name, patient_phone, doctor_name, doctor_id, patient_id, appointment_date, appointment_time, notes) "
+            + "VALUES (?, ?, ?, ?, (SELECT MIN(id) FROM patients WHERE name = ? AND phone IS NOT DISTINCT FROM ?), "
+            + "?, ?, ?)";
+    // Skips the row instead of failing when the unique active slot index says the slot is held
+    private static final String INSERT_IF_FREE = INSERT_APPOINTMENT
+            + " ON CONFLICT (doctor_id, appointment_date, appointment_time) WHERE status <> 'cancelled' DO NOTHING";
+    // SQLSTATE unique_violation
+    private static final String UNIQUE_VIOLATION = "23505";
+    // Null when disabled or when it could not be loaded; hasConflict() then always queries.
+    // Keyed by doctor id, so renaming a doctor does not hide their booked slots
+    private volatile SlotBloomFilter conflictFilter;
+    // Serializes the check-then-insert in saveAppointments() and rescheduleAppointment() per doctor
+    private final StripedLocks bookingLocks = new StripedLocks(BOOKING_STRIPES);
+    // Doctor ids by name; there are few doctors, so each name is looked up once
+    private final Map<String, Integer> doctorIds = new ConcurrentHashMap<>();
+    // Whether the schema reached KEYS_VERSION; testConnection() is false until then
+    private volatile boolean ready;
+    // Why the database answered but could not be brought up to KEYS_VERSION
+    private volatile String schemaProblem;
+    // Every method borrows its connection here instead of opening a new one
+    private final ConnectionPool pool;
+    
+    // Created on first use; class initialization makes that happen exactly once
+    private static class Holder {
+        static final PostgreSQLManager INSTANCE = new PostgreSQLManager();
+    }
     
     private PostgreSQLManager() {
+        Properties config = loadConfig();
+        String url = String.format("jdbc:postgresql://%s:%s/%s",
+                config.getProperty("db.host", DB_HOST).trim(),
+                config.getProperty("db.port", DB_PORT).trim(),
+                config.getProperty("db.name", DB_NAME).trim());
+        Properties props = new Properties();
+        props.setProperty("user", config.getProperty("db.username", DB_USER).trim());
+        props.setProperty("password", config.getProperty("db.password", DB_PASSWORD));
+        props.setProperty("ssl", config.getProperty("db.ssl", "false").trim());
+        // Lets the driver send a JDBC batch of inserts as multi-row INSERTs
+        props.setProperty("reWriteBatchedInserts", "true");
+        pool = new ConnectionPool(url, props, config);
         initializeDatabase();
     }
     
     public static PostgreSQLManager getInstance() {
-        if (instance == null) {
-            instance = new PostgreSQLManager();
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Reads database-config.properties from the working directory, or the
+     * file named by -Dclinic.db.config; the built-in defaults apply if it is
+     * missing.
+     */
+    private static Properties loadConfig() {
+        Properties config = new Properties();
+        Path file = Paths.get(System.getProperty(CONFIG_FILE_PROPERTY, DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                config.load(reader);
+            } catch (IOException e) {
+                System.err.println("Error reading " + file + ": " + e.getMessage());
+            }
         }
-        return instance;
+        return config;
     }
     
+    // Borrowed from the pool; closing it hands it back
     private Connection getConnection() throws SQLException {
-        Properties props = new Properties();
-        props.setProperty("user", DB_USER);
-        props.setProperty("password", DB_PASSWORD);
-        props.setProperty("ssl", "false");
-        return DriverManager.getConnection(DB_URL, props);
+        return pool.getConnection();
     }
     
     private void initializeDatabase() {
-        try (Connection conn = getConnection()) {
-            createTables(conn);
-            insertDefaultData(conn);
-            System.out.println("PostgreSQL database initialized successfully");
+        Connection conn;
+        try {
+            conn = getConnection();
         } catch (SQLException e) {
             System.err.println("Database initialization error: " + e.getMessage());
             System.err.println("Falling back to file-based storage...");
+            return;
+        }
+        try (conn) {
+            int version = SchemaMigrator.POSTGRESQL.migrate(conn);
+            if (version < KEYS_VERSION) {
+                throw new SQLException("the schema is at version " + version + ", this application needs "
+                        + KEYS_VERSION + "; see the migration errors above");
+            }
+            // Other workstations may book into the same database, which the filter would
+            // not see, so it is only used when this is known to be the sole writer
+            if (Boolean.getBoolean(CONFLICT_FILTER_PROPERTY)) {
+                conflictFilter = loadConflictFilter(conn);
+            }
+            ready = true;
+            System.out.println("PostgreSQL database initialized successfully");
+        } catch (SQLException e) {
+            // Reachable, so other workstations may be using it: no fallback
+            schemaProblem = e.getMessage();
+            System.err.println("Database initialization error: " + e.getMessage());
         }
     }
     
-    private void createTables(Connection conn) throws SQLException {
-        // Users table
-        String createUsersTable = """
-            CREATE TABLE IF NOT EXISTS users (
-                id SERIAL PRIMARY KEY,
-                username VARCHAR(50) UNIQUE NOT NULL,
-                password VARCHAR(100) NOT NULL,
-                role VARCHAR(20) NOT NULL DEFAULT 'staff',
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Doctors table
-        String createDoctorsTable = """
-            CREATE TABLE IF NOT EXISTS doctors (
-                id SERIAL PRIMARY KEY,
-                name VARCHAR(100) NOT NULL,
-                specialization VARCHAR(100),
-                phone VARCHAR(20),
-                email VARCHAR(100),
-                active BOOLEAN DEFAULT true,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Patients table
-        String createPatientsTable = """
-            CREATE TABLE IF NOT EXISTS patients (
-                id SERIAL PRIMARY KEY,
-                name VARCHAR(100) NOT NULL,
-                phone VARCHAR(20),
-                email VARCHAR(100),
-                address TEXT,
-                date_of_birth DATE,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Appointments table
-        String createAppointmentsTable = """
-            CREATE TABLE IF NOT EXISTS appointments (
-                id SERIAL PRIMARY KEY,
-                patient_name VARCHAR(100) NOT NULL,
-                doctor_name VARCHAR(100) NOT NULL,
-                appointment_date DATE NOT NULL,
-                appointment_time TIME NOT NULL,
-                status VARCHAR(20) DEFAULT 'scheduled',
-                notes TEXT,
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
-        """;
-        
-        // Create indexes for better performance
-        String createIndexes = """
-            CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments(appointment_date);
-            CREATE INDEX IF NOT EXISTS idx_appointments_doctor ON appointments(doctor_name);
-            CREATE INDEX IF NOT EXISTS idx_appointments_status ON appointments(status);
-        """;
-        
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(createUsersTable);
-            stmt.execute(createDoctorsTable);
-            stmt.execute(createPatientsTable);
-            stmt.execute(createAppointmentsTable);
-            stmt.execute(createIndexes);
+    private SlotBloomFilter loadConflictFilter(Connection conn) throws SQLException {
+        // Past slots are not loaded; the filter sends checks for them to the database
+        LocalDate first = LocalDate.now();
+        SlotBloomFilter filter = new SlotBloomFilter(Integer.getInteger(CONFLICT_FILTER_COUNTERS_PROPERTY, 4096), first);
+        String query = "SELECT doctor_id, appointment_date, appointment_time FROM appointments "
+                + "WHERE appointment_date >= ? AND status != 'cancelled'";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setDate(1, Date.valueOf(first));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                filter.add(filterKey(rs.getInt(1)), rs.getDate(2).toLocalDate(), formatTime(rs.getTime(3)));
+            }
         }
+        return filter;
     }
     
-    private void insertDefaultData(Connection conn) throws SQLException {
-        // Insert default admin user if not exists
-        String checkUser = "SELECT COUNT(*) FROM users WHERE username = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(checkUser)) {
-            stmt.setString(1, "admin");
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getInt(1) == 0) {
-                String insertAdmin = "INSERT INTO users (username, password, role) VALUES (?, ?, ?)";
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertAdmin)) {
-                    insertStmt.setString(1, "admin");
-                    insertStmt.setString(2, "clinic123");
-                    insertStmt.setString(3, "admin");
-                    insertStmt.executeUpdate();
-                }
-                
-                // Insert staff user
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertAdmin)) {
-                    insertStmt.setString(1, "staff");
-                    insertStmt.setString(2, "staff123");
-                    insertStmt.setString(3, "staff");
-                    insertStmt.executeUpdate();
+    private static String filterKey(int doctorId) {
+        return Integer.toString(doctorId);
+    }
+    
+    /**
+     * The id of the doctor with this name, or 0 if there is none. With
+     * create set an unknown name is added as an inactive doctor instead,
+     * as V5 did for names only found in old appointments. Call it outside
+     * a transaction, so a rollback cannot take back an id already cached.
+     */
+    private int doctorId(Connection conn, String doctorName, boolean create) throws SQLException {
+        Integer cached = doctorIds.get(doctorName);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (doctorIds) {
+            int id = 0;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT MIN(id) FROM doctors WHERE name = ?")) {
+                stmt.setString(1, doctorName);
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    id = rs.getInt(1);
                 }
             }
-        }
-        
-        // Insert default doctors if not exists
-        String checkDoctors = "SELECT COUNT(*) FROM doctors";
-        try (PreparedStatement stmt = conn.prepareStatement(checkDoctors)) {
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next() && rs.getInt(1) == 0) {
-                String insertDoctor = "INSERT INTO doctors (name, specialization) VALUES (?, ?)";
-                String[][] doctors = {
-                    {"Dr. Smith", "General Medicine"},
-                    {"Dr. Johnson", "Cardiology"},
-                    {"Dr. Williams", "Pediatrics"},
-                    {"Dr. Brown", "Orthopedics"},
-                    {"Dr. Davis", "Dermatology"}
-                };
-                
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertDoctor)) {
-                    for (String[] doctor : doctors) {
-                        insertStmt.setString(1, doctor[0]);
-                        insertStmt.setString(2, doctor[1]);
-                        insertStmt.executeUpdate();
-                    }
+            if (id == 0 && create) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO doctors (name, active) VALUES (?, false) RETURNING id")) {
+                    stmt.setString(1, doctorName);
+                    ResultSet rs = stmt.executeQuery();
+                    rs.next();
+                    id = rs.getInt(1);
                 }
             }
+            if (id != 0) {
+                doctorIds.put(doctorName, id);
+            }
+            return id;
         }
     }
     
+    private static void bindAppointment(PreparedStatement stmt, AppointmentRequest request, int doctorId, Time time)
+            throws SQLException {
+        stmt.setString(1, request.getPatientName());
+        stmt.setString(2, request.getPatientPhone());
+        stmt.setString(3, request.getDoctorName());
+        stmt.setInt(4, doctorId);
+        stmt.setString(5, request.getPatientName());
+        stmt.setString(6, request.getPatientPhone());
+        stmt.setDate(7, Date.valueOf(request.getDate()));
+        stmt.setTime(8, time);
+        stmt.setString(9, request.getNotes());
+    }
+    
+    
     // User authentication
     public boolean authenticateUser(String username, String password) {
         String query = "SELECT COUNT(*) FROM users WHERE username = ? AND password = ?";
@@ -221,42 +272,228 @@ public class PostgreSQLManager {
     
     // Save appointment
     public boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time) {
-        String query = "INSERT INTO appointments (patient_name, doctor_name, appointment_date, appointment_time) VALUES (?, ?, ?, ?)";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, patientName);
-            stmt.setString(2, doctorName);
-            stmt.setDate(3, Date.valueOf(date));
-            stmt.setTime(4, Time.valueOf(time + ":00")); // Convert HH:MM to HH:MM:SS
+        try (Connection conn = getConnection()) {
+            int doctorId = doctorId(conn, doctorName, true);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_APPOINTMENT)) {
             
-            return stmt.executeUpdate() > 0;
+                bindAppointment(stmt, new AppointmentRequest(patientName, doctorName, date, time), doctorId,
+                        Time.valueOf(time + ":00")); // Convert HH:MM to HH:MM:SS
+                
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            SlotBloomFilter filter = conflictFilter;
+            if (filter != null) {
+                filter.add(filterKey(doctorId), date, formatTime(Time.valueOf(time + ":00")));
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Error saving appointment: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Books the slot only if nobody holds it. The unique slot index is part
+     * of the schema this class needs, so this is always bookIfFree().
+     */
+    public BookingResult tryBook(String patientName, String doctorName, LocalDate date, String time) {
+        return bookIfFree(new AppointmentRequest(patientName, doctorName, date, time));
+    }
+    
+    @Override
+    public BookingResult tryBook(AppointmentRequest request) {
+        return bookIfFree(request);
+    }
+    
+    /**
+     * Books several appointments in one transaction, under the lock stripes
+     * of every doctor involved (taken in ascending order). The slots
+     * already held on the dates involved are read with one query, each
+     * request is checked against them and against the requests before it,
+     * and the accepted rows go in with one executeBatch(), which the driver
+     * rewrites into multi-row INSERTs. The stripes only hold off this
+     * process, so if another workstation takes one of the slots in the
+     * meantime the unique slot index rejects the batch; the rows are then
+     * inserted one at a time, skipping any slot that is now held, and those
+     * report CONFLICT. If the batch fails otherwise nothing is saved and
+     * every row reports FAILED; a row whose time does not parse is FAILED
+     * on its own.
+     */
+    public List<BookingResult> saveAppointments(List<AppointmentRequest> requests) {
+        List<BookingResult> results = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return results;
+        }
+        List<ReentrantLock> locked = new ArrayList<>();
+        int[] ids = new int[requests.size()];
+        try (Connection conn = getConnection()) {
+            TreeSet<Integer> stripes = new TreeSet<>();
+            for (int i = 0; i < requests.size(); i++) {
+                ids[i] = doctorId(conn, requests.get(i).getDoctorName(), true);
+                stripes.add(bookingLocks.stripeOf(ids[i]));
+            }
+            for (int stripe : stripes) {
+                ReentrantLock lock = bookingLocks.get(stripe);
+                lock.lock();
+                locked.add(lock);
+            }
+            conn.setAutoCommit(false);
+            Set<String> taken = bookedSlots(conn, requests, ids);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_APPOINTMENT)) {
+                for (int i = 0; i < requests.size(); i++) {
+                    AppointmentRequest request = requests.get(i);
+                    Time time;
+                    try {
+                        time = Time.valueOf(request.getTime() + ":00");
+                    } catch (IllegalArgumentException e) {
+                        results.add(BookingResult.FAILED);
+                        continue;
+                    }
+                    if (!taken.add(slotKey(ids[i], request.getDate(), formatTime(time)))) {
+                        results.add(BookingResult.CONFLICT);
+                        continue;
+                    }
+                    bindAppointment(stmt, request, ids[i], time);
+                    stmt.addBatch();
+                    results.add(BookingResult.BOOKED);
+                }
+                stmt.executeBatch();
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                conn.rollback();
+                insertEachIfFree(conn, requests, ids, results);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Error saving appointments: " + e.getMessage());
+            return new ArrayList<>(Collections.nCopies(requests.size(), BookingResult.FAILED));
+        } finally {
+            for (ReentrantLock lock : locked) {
+                lock.unlock();
+            }
+        }
+        SlotBloomFilter filter = conflictFilter;
+        for (int i = 0; filter != null && i < requests.size(); i++) {
+            if (results.get(i) == BookingResult.BOOKED) {
+                AppointmentRequest request = requests.get(i);
+                filter.add(filterKey(ids[i]), request.getDate(),
+                        formatTime(Time.valueOf(request.getTime() + ":00")));
+            }
+        }
+        return results;
+    }
+    
+    // Inserts the BOOKED rows one by one after another writer beat the batch to a slot
+    private void insertEachIfFree(Connection conn, List<AppointmentRequest> requests, int[] ids,
+            List<BookingResult> results) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_IF_FREE)) {
+            for (int i = 0; i < requests.size(); i++) {
+                if (results.get(i) != BookingResult.BOOKED) {
+                    continue;
+                }
+                AppointmentRequest request = requests.get(i);
+                bindAppointment(stmt, request, ids[i], Time.valueOf(request.getTime() + ":00"));
+                if (stmt.executeUpdate() == 0) {
+                    results.set(i, BookingResult.CONFLICT);
+                }
+            }
+        }
+    }
+    
+    // A failed batch reports the row's error as the next exception
+    private static boolean isUniqueViolation(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if (UNIQUE_VIOLATION.equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Slots the batch's doctors hold with non-cancelled appointments between
+    // the earliest and latest requested dates
+    private Set<String> bookedSlots(Connection conn, List<AppointmentRequest> requests, int[] ids)
+            throws SQLException {
+        LocalDate first = requests.get(0).getDate();
+        LocalDate last = first;
+        for (AppointmentRequest request : requests) {
+            first = request.getDate().isBefore(first) ? request.getDate() : first;
+            last = request.getDate().isAfter(last) ? request.getDate() : last;
+        }
+        Set<Integer> doctors = new TreeSet<>();
+        for (int id : ids) {
+            doctors.add(id);
+        }
+        Set<String> slots = new HashSet<>();
+        String query = "SELECT doctor_id, appointment_date, appointment_time FROM appointments "
+                + "WHERE doctor_id = ANY(?) AND appointment_date BETWEEN ? AND ? AND status != 'cancelled'";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setArray(1, conn.createArrayOf("integer", doctors.toArray()));
+            stmt.setDate(2, Date.valueOf(first));
+            stmt.setDate(3, Date.valueOf(last));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                slots.add(slotKey(rs.getInt(1), rs.getDate(2).toLocalDate(), formatTime(rs.getTime(3))));
+            }
+        }
+        return slots;
+    }
+    
+    private static String slotKey(int doctorId, LocalDate date, String time) {
+        return doctorId + "|" + date + "|" + time;
+    }
+    
+    /**
+     * Books the slot in one statement and one round trip: the insert is
+     * skipped if an active appointment already holds the slot, which the
+     * unique slot index decides, so it is safe against every other writer
+     * to the database, not just this application. Needs that index.
+     */
+    public BookingResult bookIfFree(String patientName, String doctorName, LocalDate date, String time) {
+        return bookIfFree(new AppointmentRequest(patientName, doctorName, date, time));
+    }
+    
+    private BookingResult bookIfFree(AppointmentRequest request) {
+        String query = INSERT_IF_FREE + " RETURNING id";
+        
+        try (Connection conn = getConnection()) {
+            int doctorId = doctorId(conn, request.getDoctorName(), true);
+            Time slot = Time.valueOf(request.getTime() + ":00");
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+                bindAppointment(stmt, request, doctorId, slot);
+                
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    return BookingResult.CONFLICT;
+                }
+            }
+            SlotBloomFilter filter = conflictFilter;
+            if (filter != null) {
+                filter.add(filterKey(doctorId), request.getDate(), formatTime(slot));
+            }
+            return BookingResult.BOOKED;
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error saving appointment: " + e.getMessage());
+            return BookingResult.FAILED;
+        }
+    }
+    
     // Get all appointments
     public List<Appointment> getAllAppointments() {
         List<Appointment> appointments = new ArrayList<>();
-        String query = "SELECT * FROM appointments ORDER BY appointment_date DESC, appointment_time";
+        String query = SELECT_APPOINTMENTS + " ORDER BY a.appointment_date DESC, a.appointment_time";
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                Appointment appointment = new Appointment(
-                    rs.getInt("id"),
-                    rs.getString("patient_name"),
-                    rs.getString("doctor_name"),
-                    rs.getDate("appointment_date").toLocalDate(),
-                    rs.getTime("appointment_time").toString().substring(0, 5), // HH:MM format
-                    rs.getString("status")
-                );
-                appointments.add(appointment);
+                appointments.add(mapAppointment(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error fetching appointments: " + e.getMessage());
@@ -265,28 +502,135 @@ public class PostgreSQLManager {
         return appointments;
     }
     
+    /**
+     * Streams appointments off a forward-only result set instead of building
+     * a list. With autocommit off the driver fetches STREAM_FETCH_SIZE rows
+     * at a time through a server-side cursor, so memory stays flat however
+     * many rows there are. The stream holds a connection until it is closed;
+     * use it in try-with-resources.
+     */
+    public Stream<Appointment> streamAppointments(Predicate<? super Appointment> filter, long limit) {
+        String query = SELECT_APPOINTMENTS + " ORDER BY a.appointment_date DESC, a.appointment_time";
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+            stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = stmt.executeQuery();
+            return ResultSetStream.of(conn, stmt, rs, this::mapAppointment).filter(filter).limit(limit);
+        } catch (SQLException e) {
+            System.err.println("Error streaming appointments: " + e.getMessage());
+            ResultSetStream.close(conn, stmt, null);
+            return Stream.empty();
+        }
+    }
+    
+    /**
+     * One page of appointments, newest first, after the cursor's key. The
+     * row comparison is an index condition on idx_appointments_listing
+     * (migration V4), read backwards, so the server stops after pageSize + 1
+     * rows however deep the page is.
+     */
+    public AppointmentPage getAppointmentsPage(int pageSize, String cursor) {
+        int size = Math.max(pageSize, 1);
+        try {
+            AppointmentPage.Key after = AppointmentPage.Key.parse(cursor);
+            String query = SELECT_APPOINTMENTS
+                + (after == null ? "" : " WHERE (a.appointment_date, a.appointment_time, a.id) < (?, ?, ?)")
+                + " ORDER BY a.appointment_date DESC, a.appointment_time DESC, a.id DESC LIMIT ?";
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
+                int index = 1;
+                if (after != null) {
+                    stmt.setDate(index++, Date.valueOf(after.date));
+                    stmt.setTime(index++, Time.valueOf(after.time.length() == 5 ? after.time + ":00" : after.time));
+                    stmt.setInt(index++, after.id);
+                }
+                // One extra row says whether there is a next page
+                stmt.setInt(index, size + 1);
+                
+                List<Appointment> appointments = new ArrayList<>(size);
+                String lastTime = null;
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    if (appointments.size() == size) {
+                        // The cursor keeps the seconds that Appointment drops
+                        Appointment last = appointments.get(size - 1);
+                        return new AppointmentPage(appointments,
+                            AppointmentPage.cursor(last.getAppointmentDate(), lastTime, last.getId()));
+                    }
+                    appointments.add(mapAppointment(rs));
+                    lastTime = rs.getTime("appointment_time").toString();
+                }
+                return new AppointmentPage(appointments, null);
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error fetching appointments: " + e.getMessage());
+            return AppointmentPage.empty();
+        }
+    }
+    
+    // Reads a row of SELECT_APPOINTMENTS
+    private Appointment mapAppointment(ResultSet rs) throws SQLException {
+        Appointment appointment = new Appointment(
+            rs.getInt("id"),
+            rs.getString("patient_name"),
+            rs.getString("doctor_name"),
+            rs.getDate("appointment_date").toLocalDate(),
+            formatTime(rs.getTime("appointment_time")),
+            rs.getString("status")
+        );
+        appointment.setDoctorId(rs.getInt("doctor_id"));
+        appointment.setPatientId(rs.getInt("patient_id"));
+        appointment.setPatientPhone(rs.getString("patient_phone"));
+        appointment.setNotes(rs.getString("notes"));
+        return appointment;
+    }
+    
+    private static String formatTime(Time time) {
+        return time.toString().substring(0, 5); // HH:MM format
+    }
+    
     // Check for appointment conflicts
     public boolean hasConflict(String doctorName, LocalDate date, String time) {
-        String query = "SELECT COUNT(*) FROM appointments WHERE doctor_name = ? AND appointment_date = ? AND appointment_time = ? AND status != 'cancelled'";
+        try (Connection conn = getConnection()) {
+            int doctorId = doctorId(conn, doctorName, false);
+            // Nobody has booked a doctor that does not exist
+            return doctorId != 0 && hasConflict(conn, doctorId, date, time);
+        } catch (SQLException e) {
+            System.err.println("Error checking conflicts: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean hasConflict(Connection conn, int doctorId, LocalDate date, String time) throws SQLException {
+        SlotBloomFilter filter = conflictFilter;
+        if (filter != null && !filter.mightContain(filterKey(doctorId), date, formatTime(Time.valueOf(time + ":00")))) {
+            return false;
+        }
+        String query = "SELECT COUNT(*) FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND appointment_time = ? AND status != 'cancelled'";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setString(1, doctorName);
+            stmt.setInt(1, doctorId);
             stmt.setDate(2, Date.valueOf(date));
             stmt.setTime(3, Time.valueOf(time + ":00"));
             
             ResultSet rs = stmt.executeQuery();
-            return rs.next() && rs.getInt(1) > 0;
-        } catch (SQLException e) {
-            System.err.println("Error checking conflicts: " + e.getMessage());
-            return false;
+            boolean conflict = rs.next() && rs.getInt(1) > 0;
+            if (!conflict && filter != null) {
+                filter.recordFalsePositive();
+            }
+            return conflict;
         }
     }
     
     // Update appointment status
     public boolean updateAppointmentStatus(int appointmentId, String status) {
-        String query = "UPDATE appointments SET status = ? WHERE id = ?";
+        // Returns the slot and the status it had before, to keep the conflict filter in step
+        String query = "UPDATE appointments a SET status = ? FROM (SELECT id, status FROM appointments WHERE id = ? FOR UPDATE) old "
+                + "WHERE a.id = old.id RETURNING a.doctor_id, a.appointment_date, a.appointment_time, old.status";
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -294,17 +638,95 @@ public class PostgreSQLManager {
             stmt.setString(1, status);
             stmt.setInt(2, appointmentId);
             
-            return stmt.executeUpdate() > 0;
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return false;
+            }
+            SlotBloomFilter filter = conflictFilter;
+            boolean wasActive = !"cancelled".equals(rs.getString(4));
+            boolean isActive = !"cancelled".equals(status);
+            if (filter != null && wasActive != isActive) {
+                String doctor = filterKey(rs.getInt(1));
+                LocalDate date = rs.getDate(2).toLocalDate();
+                String time = formatTime(rs.getTime(3));
+                if (isActive) {
+                    filter.add(doctor, date, time);
+                } else {
+                    filter.remove(doctor, date, time);
+                }
+            }
+            return true;
         } catch (SQLException e) {
             System.err.println("Error updating appointment status: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Moves an appointment to a new slot; fails if that slot is already
+     * taken. Runs under the doctor's lock stripe like saveAppointments(),
+     * so a batch cannot take the new slot between the check and the update;
+     * the unique slot index covers every other writer.
+     */
+    public boolean rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        int doctorId = findDoctor(appointmentId);
+        if (doctorId == 0) {
+            return false;
+        }
+        // Returns the slot it had before, to keep the conflict filter in step
+        String query = "UPDATE appointments a SET appointment_date = ?, appointment_time = ? "
+                + "FROM (SELECT id, appointment_date, appointment_time FROM appointments "
+                + "WHERE id = ? AND status != 'cancelled' FOR UPDATE) old "
+                + "WHERE a.id = old.id RETURNING old.appointment_date, old.appointment_time";
+        ReentrantLock lock = bookingLocks.forKey(doctorId);
+        lock.lock();
+        try (Connection conn = getConnection()) {
+            if (hasConflict(conn, doctorId, date, time)) {
+                return false;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            
+                stmt.setDate(1, Date.valueOf(date));
+                stmt.setTime(2, Time.valueOf(time + ":00"));
+                stmt.setInt(3, appointmentId);
+                
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    return false;
+                }
+                SlotBloomFilter filter = conflictFilter;
+                if (filter != null) {
+                    filter.remove(filterKey(doctorId), rs.getDate(1).toLocalDate(), formatTime(rs.getTime(2)));
+                    filter.add(filterKey(doctorId), date, formatTime(Time.valueOf(time + ":00")));
+                }
+                return true;
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error rescheduling appointment: " + e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // The appointment's doctor_id, or 0 if there is no such appointment
+    private int findDoctor(int appointmentId) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT doctor_id FROM appointments WHERE id = ?")) {
+            
+            stmt.setInt(1, appointmentId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error fetching appointment: " + e.getMessage());
+            return 0;
+        }
+    }
+    
     // Get appointments by date range
     public List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
         List<Appointment> appointments = new ArrayList<>();
-        String query = "SELECT * FROM appointments WHERE appointment_date BETWEEN ? AND ? ORDER BY appointment_date, appointment_time";
+        String query = SELECT_APPOINTMENTS + " WHERE a.appointment_date BETWEEN ? AND ? ORDER BY a.appointment_date, a.appointment_time";
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(query)) {
@@ -314,15 +736,7 @@ public class PostgreSQLManager {
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                Appointment appointment = new Appointment(
-                    rs.getInt("id"),
-                    rs.getString("patient_name"),
-                    rs.getString("doctor_name"),
-                    rs.getDate("appointment_date").toLocalDate(),
-                    rs.getTime("appointment_time").toString().substring(0, 5),
-                    rs.getString("status")
-                );
-                appointments.add(appointment);
+                appointments.add(mapAppointment(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error fetching appointments by date range: " + e.getMessage());
@@ -331,8 +745,73 @@ public class PostgreSQLManager {
         return appointments;
     }
     
-    // Test database connection
+    /**
+     * Streams a date range to action instead of building a list. It runs in
+     * a read-only transaction with a fetch size, which makes the driver
+     * read through a server-side cursor STREAM_FETCH_SIZE rows at a time;
+     * with autocommit on it would pull the whole range into memory before
+     * returning the first row. idx_appointments_listing hands the rows over
+     * in order, so the server does not sort the range first either.
+     */
+    public boolean forEachAppointmentInRange(LocalDate startDate, LocalDate endDate,
+                                             Consumer<? super Appointment> action) {
+        String query = SELECT_APPOINTMENTS + " WHERE a.appointment_date BETWEEN ? AND ? "
+                + "ORDER BY a.appointment_date, a.appointment_time, a.id";
+        
+        try (Connection conn = getConnection()) {
+            // Handed back to the pool rolled back and read-write again
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (PreparedStatement stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                stmt.setDate(1, Date.valueOf(startDate));
+                stmt.setDate(2, Date.valueOf(endDate));
+                
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    action.accept(mapAppointment(rs));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming appointments by date range: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * The slot pre-check behind hasConflict(), for its hit/miss counters, or
+     * null unless enabled with -Dclinic.conflictFilter=true.
+     */
+    public SlotBloomFilter getConflictFilter() {
+        return conflictFilter;
+    }
+    
+    /** Pool size, wait times, timeouts and suspected leaks so far. */
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.stats();
+    }
+    
+    @Override
+    public String getBackendName() {
+        return "PostgreSQL";
+    }
+    
+    /**
+     * Why the database, though it could be reached, is not usable: its
+     * schema could not be brought up to the version this class needs.
+     * Null if it was brought up to date or could not be reached at all.
+     */
+    public String getSchemaProblem() {
+        return schemaProblem;
+    }
+    
+    // Test database connection; false too while the schema is older than this class needs
     public boolean testConnection() {
+        if (!ready) {
+            return false;
+        }
         try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
@@ -0,0 +1,76 @@
+package clinicappointmentschedulingsystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Adapts a forward-only ResultSet to a lazy Stream. Rows are mapped one at a
+ * time as the stream is consumed, and closing the stream closes the result
+ * set, the statement and the connection.
+ */
+final class ResultSetStream {
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStream() {
+    }
+
+    static <T> Stream<T> of(Connection conn, PreparedStatement stmt, ResultSet rs, RowMapper<T> mapper) {
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    System.err.println("Error streaming appointments: " + e.getMessage());
+                    return false;
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> close(conn, stmt, rs));
+    }
+
+    // Each step runs even if the one before it failed, so the connection
+    // always goes back to its pool
+    static void close(Connection conn, PreparedStatement stmt, ResultSet rs) {
+        try {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+            } finally {
+                try {
+                    if (stmt != null) {
+                        stmt.close();
+                    }
+                } finally {
+                    if (conn != null) {
+                        try {
+                            if (!conn.getAutoCommit()) {
+                                conn.commit();
+                            }
+                        } finally {
+                            conn.close();
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error closing appointment stream: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
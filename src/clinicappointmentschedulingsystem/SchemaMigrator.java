@@ -0,0 +1,250 @@
+package clinicappointmentschedulingsystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings a database schema up to date by running the numbered SQL scripts
+ * under migrations/&lt;dialect&gt;/ that it has not run yet, recording each in
+ * schema_version with a SHA-256 checksum of its text.
+ *
+ * When the schema is current, migrate() is a single query on
+ * schema_version. Each script runs in its own transaction together with
+ * its schema_version row, so a failed script leaves nothing behind and is
+ * retried on the next start; later scripts wait until it succeeds. A
+ * script that was changed after it ran is reported, not run again: fixes
+ * belong in a new script.
+ *
+ * Warnings a statement raises, such as rows a script had to change to
+ * apply, are printed with the script's name.
+ *
+ * Scripts tolerate objects that are already there. SQLite has no ADD
+ * COLUMN IF NOT EXISTS, so a plain ALTER TABLE ... ADD COLUMN is skipped
+ * when the table already has that column.
+ */
+public final class SchemaMigrator {
+    /** Scripts for PostgreSQLManager, in order; version n is entry n - 1. */
+    public static final SchemaMigrator POSTGRESQL = new SchemaMigrator("postgresql",
+            "LOCK TABLE schema_version IN EXCLUSIVE MODE",
+            "V1__baseline.sql",
+            "V2__patient_phone_and_indexes.sql",
+            "V3__active_slot_index.sql",
+            "V4__listing_order_index.sql",
+            "V5__doctor_patient_keys.sql",
+            "V6__patient_by_name_and_phone.sql");
+
+    /** Scripts for DatabaseManager, in order; version n is entry n - 1. */
+    public static final SchemaMigrator SQLITE = new SchemaMigrator("sqlite", null,
+            "V1__baseline.sql",
+            "V2__patient_phone_and_indexes.sql",
+            "V3__doctor_patient_keys.sql",
+            "V4__patient_by_name_and_phone.sql");
+
+    private static final String CREATE_VERSION_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INTEGER PRIMARY KEY,
+                script VARCHAR(200) NOT NULL,
+                checksum VARCHAR(64) NOT NULL,
+                installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+        """;
+
+    // An SQLite trigger whose BEGIN ... END block holds statements of its own
+    private static final Pattern TRIGGER_BODY = Pattern.compile("\\s*CREATE\\s+TRIGGER\\b.*\\bBEGIN\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // ALTER TABLE t ADD COLUMN c without IF NOT EXISTS; groups are the table and column
+    private static final Pattern ADD_COLUMN = Pattern.compile(
+            "\\s*ALTER\\s+TABLE\\s+(\\w+)\\s+ADD\\s+COLUMN\\s+(?!IF\\b)(\\w+)\\b.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String dialect;
+    // Keeps other workstations from running the same script at the same time
+    private final String lockStatement;
+    private final String[] scripts;
+
+    private SchemaMigrator(String dialect, String lockStatement, String... scripts) {
+        this.dialect = dialect;
+        this.lockStatement = lockStatement;
+        this.scripts = scripts;
+    }
+
+    /** The version the code expects, i.e. the number of scripts. */
+    public int latestVersion() {
+        return scripts.length;
+    }
+
+    /**
+     * Runs the scripts conn has not had yet and returns the version the
+     * schema is at afterwards, which is below latestVersion() if a script
+     * failed. Leaves conn in autocommit mode.
+     */
+    public int migrate(Connection conn) throws SQLException {
+        Map<Integer, String> applied = appliedVersions(conn);
+        int version = 0;
+        while (version < scripts.length && applied.containsKey(version + 1)) {
+            version++;
+            if (!checksum(load(version)).equals(applied.get(version))) {
+                System.err.println("Migration " + dialect + "/" + scripts[version - 1]
+                        + " has changed since it was applied; put schema changes in a new script");
+            }
+        }
+        if (applied.containsKey(scripts.length + 1)) {
+            System.err.println("The " + dialect + " schema is newer than this version of the application");
+        }
+        while (version < scripts.length) {
+            if (!apply(conn, version + 1)) {
+                break;
+            }
+            version++;
+        }
+        return version;
+    }
+
+    // Version to checksum for every script already run; creates the table on first use
+    private Map<Integer, String> appliedVersions(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version");
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+            return applied;
+        } catch (SQLException e) {
+            // No schema_version yet: a new database, or one from before migrations
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE);
+            }
+            return applied;
+        }
+    }
+
+    private boolean apply(Connection conn, int version) throws SQLException {
+        String script = scripts[version - 1];
+        String text = load(version);
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            if (lockStatement != null) {
+                stmt.execute(lockStatement);
+            }
+            // Another workstation may have run it while we waited for the lock
+            try (PreparedStatement check = conn.prepareStatement("SELECT COUNT(*) FROM schema_version WHERE version = ?")) {
+                check.setInt(1, version);
+                ResultSet rs = check.executeQuery();
+                if (rs.next() && rs.getInt(1) > 0) {
+                    conn.commit();
+                    return true;
+                }
+            }
+            for (String sql : statements(text)) {
+                if (!addsExistingColumn(conn, sql)) {
+                    stmt.execute(sql);
+                    // What a script reports about the data it changed, e.g. RAISE WARNING
+                    for (SQLWarning warning = stmt.getWarnings(); warning != null; warning = warning.getNextWarning()) {
+                        System.err.println("Migration " + dialect + "/" + script + ": " + warning.getMessage());
+                    }
+                }
+            }
+            String record = "INSERT INTO schema_version (version, script, checksum) VALUES (?, ?, ?)";
+            try (PreparedStatement insert = conn.prepareStatement(record)) {
+                insert.setInt(1, version);
+                insert.setString(2, script);
+                insert.setString(3, checksum(text));
+                insert.executeUpdate();
+            }
+            conn.commit();
+            System.out.println("Applied migration " + dialect + "/" + script);
+            return true;
+        } catch (SQLException e) {
+            conn.rollback();
+            System.err.println("Migration " + dialect + "/" + script + " failed: " + e.getMessage());
+            return false;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Only SQLite scripts use the plain form, so the lookup is SQLite's
+    private static boolean addsExistingColumn(Connection conn, String sql) throws SQLException {
+        Matcher matcher = ADD_COLUMN.matcher(sql);
+        if (!matcher.matches()) {
+            return false;
+        }
+        String query = "SELECT COUNT(*) FROM pragma_table_info(?) WHERE name = ? COLLATE NOCASE";
+        try (PreparedStatement check = conn.prepareStatement(query)) {
+            check.setString(1, matcher.group(1));
+            check.setString(2, matcher.group(2));
+            ResultSet rs = check.executeQuery();
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    private String load(int version) throws SQLException {
+        String path = "migrations/" + dialect + "/" + scripts[version - 1];
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(path)) {
+            if (in == null) {
+                throw new SQLException("Missing migration script " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new SQLException("Error reading migration script " + path, e);
+        }
+    }
+
+    // Statements end with a semicolon at the end of a line, except inside a $$-quoted
+    // function body or a CREATE TRIGGER ... BEGIN block, which ends at END;.
+    // -- comment lines are dropped
+    private static List<String> statements(String text) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (!quoted && (trimmed.isEmpty() || trimmed.startsWith("--"))) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if ((line.split("\\$\\$", -1).length - 1) % 2 == 1) {
+                quoted = !quoted;
+            }
+            boolean triggerBody = TRIGGER_BODY.matcher(current).lookingAt() && !trimmed.equalsIgnoreCase("END;");
+            if (trimmed.endsWith(";") && !quoted && !triggerBody) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static String checksum(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,10 +1,44 @@
 package clinicappointmentschedulingsystem;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Simple file-based data storage for the clinic system
@@ -13,20 +47,129 @@ import java.util.Properties;
 public class SimpleDataStore {
     private static final String DATA_DIR = "clinic_data";
     private static final String USERS_FILE = DATA_DIR + "/users.properties";
-    private static final String APPOINTMENTS_FILE = DATA_DIR + "/appointments.txt";
     private static final String DOCTORS_FILE = DATA_DIR + "/doctors.txt";
+    private static final String APPOINTMENTS_BINARY_FILE = DATA_DIR + "/appointments.bin";
+    private static final String APPOINTMENTS_INDEX_FILE = DATA_DIR + "/appointments.idx";
+    private static final String BOOKING_LOCK_FILE = DATA_DIR + "/booking.lock";
     
-    private static SimpleDataStore instance;
+    // Single appointments file used before the store was split into monthly
+    // segments; it is migrated on startup and kept as appointments.txt.migrated
+    private static final String LEGACY_APPOINTMENTS_FILE = DATA_DIR + "/appointments.txt";
+    
+    // Storage format for appointments: "text" (pipe-delimited, default) or
+    // "binary" (fixed-width memory-mapped records, see BinaryAppointmentLog)
+    private static final String STORAGE_FORMAT_PROPERTY = "clinic.storage.format";
+    
+    // Group-commit settings for the text format journal (see AppointmentJournal)
+    private static final String JOURNAL_BATCH_SIZE_PROPERTY = "clinic.journal.batchSize";
+    private static final String JOURNAL_LINGER_PROPERTY = "clinic.journal.lingerMillis";
+    
+    // Text appointments live in one append-only file per month of the
+    // appointment date (see AppointmentSegments and AppointmentRecords). A
+    // status change appends a new version of the record to its segment; a
+    // reschedule into another month writes the new version there and a
+    // "moved" version into the old segment.
+    
+    // Compact a segment once superseded versions exceed this fraction of it
+    private static final String COMPACTION_THRESHOLD_PROPERTY = "clinic.compaction.threshold";
+    private static final String COMPACTION_MIN_UPDATES_PROPERTY = "clinic.compaction.minUpdates";
+    
+    // How often to look for appointments other workstations sharing
+    // clinic_data have appended, in addition to file change events; 0 turns
+    // following off
+    private static final String FOLLOW_POLL_PROPERTY = "clinic.follow.pollMillis";
+    
+    // Send tryBook() through a single-writer BookingPipeline (text format only)
+    private static final String PIPELINE_PROPERTY = "clinic.booking.pipeline";
+    private static final String PIPELINE_CAPACITY_PROPERTY = "clinic.booking.pipeline.capacity";
+    
+    private static final int CANCELLED = SymbolTable.statuses().intern("cancelled");
+    
+    private static final Comparator<SimpleAppointment> NEWEST_FIRST =
+            Comparator.comparing(SimpleAppointment::getAppointmentDate)
+                    .thenComparing(SimpleAppointment::getAppointmentTime)
+                    .thenComparingInt(SimpleAppointment::getId)
+                    .reversed();
+    
+    // In-memory view of the segments, loaded once at startup and kept in step
+    // with every write. bookedSlots counts active appointments per slot,
+    // locations holds the segment and byte offset of each id's latest version.
+    private final Map<Integer, SimpleAppointment> appointments = new TreeMap<>();
+    // The same appointments in AppointmentPage order, for getAppointmentsAfter()
+    private final NavigableSet<SimpleAppointment> listing = new TreeSet<>(NEWEST_FIRST);
+    private final Map<Long, Integer> bookedSlots = new HashMap<>();
+    private final Map<Integer, Long> locations = new HashMap<>();
+    private int nextId = 1;
+    
+    // Lock-free front for bookedSlots: a slot's bit is set while it is booked
+    // or a booking for it is in flight, so racing bookings for one slot are
+    // turned away before any of them takes a lock
+    private final SlotReservationTable reservations = new SlotReservationTable();
+    
+    // Per segment: record lines in the file and ids whose latest version is there
+    private final Map<Integer, Integer> segmentRecords = new HashMap<>();
+    private final Map<Integer, Integer> segmentLive = new HashMap<>();
+    
+    private final double compactionThreshold =
+            Double.parseDouble(System.getProperty(COMPACTION_THRESHOLD_PROPERTY, "0.25"));
+    private final int compactionMinUpdates = Integer.getInteger(COMPACTION_MIN_UPDATES_PROPERTY, 100);
+    private final Set<Integer> compacting = new HashSet<>();
+    private int openStreams;
+    
+    // Tail-following state per segment: bytes read so far, the file they
+    // were read from and its identity, and offsets this process appended
+    // past that point (already applied, so skipped when they are read back).
+    // The channel stays open: that keeps the file's inode in use, so a
+    // compacted replacement can never be given the same file key.
+    private final long followPollMillis = Long.getLong(FOLLOW_POLL_PROPERTY, 1000L);
+    private final Map<Integer, Long> consumed = new HashMap<>();
+    private final Map<Integer, FileChannel> segmentChannels = new HashMap<>();
+    private final Map<Integer, Object> segmentFileKeys = new HashMap<>();
+    private final Map<Integer, Set<Long>> ownLines = new HashMap<>();
+    private final List<AppointmentListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Serializes bookings per doctor across workstations (see tryBook);
+    // seenVersions holds the version of each booking.lock stripe this
+    // process has caught up with
+    private BookingLock bookingLock;
+    private final long[] seenVersions = new long[BookingLock.STRIPES];
+    private boolean compactionLocked;
+    
+    private final boolean binaryFormat =
+            "binary".equalsIgnoreCase(System.getProperty(STORAGE_FORMAT_PROPERTY, "text"));
+    private BinaryAppointmentLog binaryLog;
+    private AppointmentSegments segments;
+    private AppointmentJournal journal;
+    private AppointmentOffsetIndex offsetIndex;
+    private volatile BookingPipeline pipeline;
+    
+    /** Notified of appointments other workstations have added or changed. */
+    public interface AppointmentListener {
+        void appointmentsChanged(List<SimpleAppointment> changed);
+    }
+    
+    // Created on first use; class initialization makes that happen exactly once
+    private static class Holder {
+        static final SimpleDataStore INSTANCE = new SimpleDataStore();
+    }
     
     private SimpleDataStore() {
+        Arrays.fill(seenVersions, -1);
         initializeDataStore();
+        loadAppointments();
+        if (isFollowing()) {
+            Thread follower = new Thread(this::followLoop, "appointment-follower");
+            follower.setDaemon(true);
+            follower.start();
+        }
+        if (!binaryFormat && journal != null && Boolean.getBoolean(PIPELINE_PROPERTY)) {
+            pipeline = new BookingPipeline(Integer.getInteger(PIPELINE_CAPACITY_PROPERTY, 1024),
+                    Integer.getInteger(JOURNAL_BATCH_SIZE_PROPERTY, 64), this::bookAll);
+        }
     }
     
     public static SimpleDataStore getInstance() {
-        if (instance == null) {
-            instance = new SimpleDataStore();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     private void initializeDataStore() {
@@ -63,14 +206,115 @@ public class SimpleDataStore {
             }
         }
         
-        // Create appointments file if it doesn't exist
-        File appointmentsFile = new File(APPOINTMENTS_FILE);
-        if (!appointmentsFile.exists()) {
-            try {
-                appointmentsFile.createNewFile();
-            } catch (IOException e) {
-                System.err.println("Error creating appointments file: " + e.getMessage());
+        try {
+            segments = new AppointmentSegments(dataDir);
+        } catch (IOException e) {
+            System.err.println("Error reading appointment segments: " + e.getMessage());
+            return;
+        }
+        
+        if (binaryFormat) {
+            openBinaryLog();
+        } else {
+            migrateLegacyFile();
+            openJournal();
+        }
+    }
+    
+    private void openJournal() {
+        try {
+            offsetIndex = new AppointmentOffsetIndex(new File(APPOINTMENTS_INDEX_FILE));
+            bookingLock = new BookingLock(new File(BOOKING_LOCK_FILE));
+            journal = new AppointmentJournal(
+                    Integer.getInteger(JOURNAL_BATCH_SIZE_PROPERTY, 64),
+                    Long.getLong(JOURNAL_LINGER_PROPERTY, 2L));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    // The pipeline's writer books through the journal, so it goes first
+                    BookingPipeline open = pipeline;
+                    if (open != null) {
+                        open.close();
+                    }
+                    journal.close();
+                    offsetIndex.close();
+                    bookingLock.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing appointments journal: " + e.getMessage());
+                }
+            }));
+        } catch (IOException e) {
+            System.err.println("Error opening appointments journal: " + e.getMessage());
+        }
+    }
+    
+    // Splits a pre-segment appointments.txt into monthly segment files. The
+    // segments are written before the manifest, so an interrupted migration
+    // simply runs again on the next start.
+    private void migrateLegacyFile() {
+        File legacyFile = new File(LEGACY_APPOINTMENTS_FILE);
+        if (segments.manifestExists() || legacyFile.length() == 0) {
+            return;
+        }
+        try {
+            Map<Integer, List<AppointmentRecords.Version>> byMonth = new TreeMap<>();
+            for (AppointmentRecords.Version version : AppointmentRecords.readLatest(List.of(legacyFile)).values()) {
+                byMonth.computeIfAbsent(AppointmentSegments.keyOf(version.appointment.getAppointmentDate()),
+                        key -> new ArrayList<>()).add(version);
+            }
+            for (Map.Entry<Integer, List<AppointmentRecords.Version>> month : byMonth.entrySet()) {
+                File segmentFile = segments.fileFor(month.getKey());
+                try (FileOutputStream out = new FileOutputStream(segmentFile)) {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    for (AppointmentRecords.Version version : month.getValue()) {
+                        writer.write(AppointmentRecords.format(version.appointment, version.createdAt));
+                        writer.write(System.lineSeparator());
+                    }
+                    writer.flush();
+                    out.getFD().sync();
+                }
+            }
+            segments.registerAll(byMonth.keySet());
+            Files.move(legacyFile.toPath(), new File(LEGACY_APPOINTMENTS_FILE + ".migrated").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Migrated " + LEGACY_APPOINTMENTS_FILE + " into "
+                    + byMonth.size() + " monthly segments");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error migrating appointments file: " + e.getMessage());
+        }
+    }
+    
+    private void openBinaryLog() {
+        File binaryFile = new File(APPOINTMENTS_BINARY_FILE);
+        try {
+            if (!binaryFile.exists()) {
+                List<File> sources = new ArrayList<>();
+                File legacyFile = new File(LEGACY_APPOINTMENTS_FILE);
+                if (legacyFile.length() > 0) {
+                    sources.add(legacyFile);
+                } else {
+                    for (int segment : segments.all()) {
+                        sources.add(segments.fileFor(segment));
+                    }
+                }
+                if (!sources.isEmpty()) {
+                    convertToBinary(sources, binaryFile);
+                }
             }
+            binaryLog = new BinaryAppointmentLog(binaryFile);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error opening binary appointments log: " + e.getMessage());
+        }
+    }
+    
+    private static void convertToBinary(List<File> sources, File binaryFile) throws IOException {
+        try {
+            int converted = BinaryAppointmentLog.convertFromText(sources, binaryFile);
+            System.out.println("Converted " + converted + " appointments to " + APPOINTMENTS_BINARY_FILE);
+        } catch (IOException | RuntimeException e) {
+            // Do not leave a half-converted log behind for the next start
+            binaryFile.delete();
+            new File(APPOINTMENTS_BINARY_FILE + ".dict").delete();
+            throw e;
         }
     }
     
@@ -102,49 +346,1208 @@ public class SimpleDataStore {
     }
     
     public boolean saveAppointment(String patientName, String doctorName, LocalDate date, String time) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(APPOINTMENTS_FILE, true))) {
-            String appointmentRecord = String.format("%s|%s|%s|%s|scheduled|%s",
-                    patientName, doctorName, date.toString(), time, 
-                    java.time.LocalDateTime.now().toString());
-            writer.println(appointmentRecord);
+        return saveAppointmentAsync(patientName, doctorName, date, time).join();
+    }
+    
+    /**
+     * Queues the appointment on the group-commit journal. The future completes
+     * with true once the record has been written and forced to disk together
+     * with the rest of its batch, or false if the write failed.
+     */
+    public CompletableFuture<Boolean> saveAppointmentAsync(String patientName, String doctorName,
+                                                           LocalDate date, String time) {
+        synchronized (this) {
+            if (binaryFormat) {
+                return CompletableFuture.completedFuture(
+                        saveBinaryAppointment(patientName, doctorName, date, time));
+            }
+            
+            SimpleAppointment appointment;
+            try {
+                appointment = new SimpleAppointment(
+                        allocateId(), patientName, doctorName, date, time, "scheduled");
+            } catch (UncheckedIOException e) {
+                System.err.println("Error saving appointment: " + e.getMessage());
+                return CompletableFuture.completedFuture(false);
+            }
+            return appendRecord(appointment, java.time.LocalDateTime.now().toString());
+        }
+    }
+    
+    private boolean saveBinaryAppointment(String patientName, String doctorName, LocalDate date, String time) {
+        if (binaryLog == null) {
+            System.err.println("Error saving appointment: binary appointments log is not open");
+            return false;
+        }
+        try {
+            int recordNumber = binaryLog.append(patientName, doctorName, date, time,
+                    "scheduled", java.time.LocalDateTime.now());
+            apply(binaryLog.read(recordNumber));
             return true;
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("Error saving appointment: " + e.getMessage());
             return false;
         }
     }
     
-    public List<SimpleAppointment> getAllAppointments() {
-        List<SimpleAppointment> appointments = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(APPOINTMENTS_FILE))) {
-            String line;
-            int id = 1;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                if (parts.length >= 5) {
-                    SimpleAppointment appointment = new SimpleAppointment(
-                            id++,
-                            parts[0], // patient name
-                            parts[1], // doctor name
-                            LocalDate.parse(parts[2]), // date
-                            parts[3], // time
-                            parts[4]  // status
-                    );
-                    appointments.add(appointment);
+    /**
+     * Books the slot only if nobody holds it, as one step across every
+     * workstation sharing clinic_data. The check and the append run under
+     * the doctor's booking.lock stripe after catching up with bookings made
+     * elsewhere, and the lock is released only once the record is on disk.
+     * Bookings for doctors on other stripes do not wait for it.
+     *
+     * The slot is first claimed in the reservation table, so a slot that is
+     * taken, or being taken by another thread, is refused without any lock
+     * or I/O. The claim is rolled back if the booking does not go through.
+     * With -Dclinic.booking.pipeline=true the rest is handed to the
+     * single-writer pipeline, which books requests in batches.
+     */
+    public BookingResult tryBook(String patientName, String doctorName, LocalDate date, String time) {
+        if (!claim(doctorName, date, time)) {
+            return BookingResult.CONFLICT;
+        }
+        BookingResult result;
+        if (pipeline != null) {
+            result = pipeline.submit(patientName, doctorName, date, time).join();
+        } else if (binaryFormat) {
+            synchronized (this) {
+                if (isBooked(doctorName, date, time)) {
+                    result = BookingResult.CONFLICT;
+                } else {
+                    result = saveBinaryAppointment(patientName, doctorName, date, time)
+                            ? BookingResult.BOOKED : BookingResult.FAILED;
+                }
+            }
+        } else {
+            result = bookLocked(doctorName, () -> isBooked(doctorName, date, time) ? null
+                    : appendRecord(new SimpleAppointment(allocateId(), patientName, doctorName, date, time, "scheduled"),
+                            java.time.LocalDateTime.now().toString()));
+        }
+        if (result != BookingResult.BOOKED) {
+            unclaim(doctorName, date, time);
+        }
+        return result;
+    }
+    
+    /**
+     * Books several appointments at once, one result per request in order.
+     * Each slot is claimed in the reservation table as in tryBook(), so a
+     * request for a slot taken earlier in the list is a CONFLICT. In the
+     * text format the claimed rows are then booked like a pipeline batch:
+     * one pass over the booking.lock stripes they need, one catch-up, and
+     * their records queued back to back so the journal writes them in as
+     * few group commits as its batch size allows.
+     */
+    public List<BookingResult> saveAppointments(List<AppointmentRequest> requests) {
+        if (binaryFormat || journal == null) {
+            List<BookingResult> results = new ArrayList<>(requests.size());
+            for (AppointmentRequest request : requests) {
+                results.add(tryBook(request.getPatientName(), request.getDoctorName(), request.getDate(),
+                        request.getTime()));
+            }
+            return results;
+        }
+        List<BookingResult> results = new ArrayList<>(Collections.nCopies(requests.size(), BookingResult.CONFLICT));
+        List<BookingPipeline.Request> claimed = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            AppointmentRequest request = requests.get(i);
+            if (claim(request.getDoctorName(), request.getDate(), request.getTime())) {
+                claimed.add(new BookingPipeline.Request(request.getPatientName(), request.getDoctorName(),
+                        request.getDate(), request.getTime()));
+                positions.add(i);
+            }
+        }
+        List<BookingResult> booked = claimed.isEmpty() ? Collections.emptyList() : bookAll(claimed);
+        for (int i = 0; i < claimed.size(); i++) {
+            BookingPipeline.Request request = claimed.get(i);
+            results.set(positions.get(i), booked.get(i));
+            if (booked.get(i) != BookingResult.BOOKED) {
+                unclaim(request.doctorName, request.date, request.time);
+            }
+        }
+        return results;
+    }
+    
+    /** The booking pipeline, for its stats, or null unless it is enabled. */
+    public BookingPipeline getBookingPipeline() {
+        return pipeline;
+    }
+    
+    // Pipeline writer and saveAppointments(): books a batch under the
+    // stripes of all its doctors at once, with one catch-up, one group
+    // commit and one version bump per stripe. Stripes are always taken in ascending order, so two
+    // workstations' writers cannot deadlock.
+    private List<BookingResult> bookAll(List<BookingPipeline.Request> requests) {
+        List<BookingResult> results = new ArrayList<>(Collections.nCopies(requests.size(), BookingResult.FAILED));
+        TreeMap<Integer, Long> versions = new TreeMap<>();
+        for (BookingPipeline.Request request : requests) {
+            versions.put(bookingLock.stripeOf(request.doctorName), null);
+        }
+        List<Integer> locked = new ArrayList<>();
+        try {
+            boolean behind = false;
+            for (Map.Entry<Integer, Long> stripe : versions.entrySet()) {
+                stripe.setValue(bookingLock.lock(stripe.getKey()));
+                locked.add(stripe.getKey());
+                behind |= stripe.getValue() != seenVersions[stripe.getKey()];
+            }
+            if (behind) {
+                journal.execute(this::followAppends).join();
+            }
+            // Null where the slot is taken
+            List<CompletableFuture<Boolean>> written = new ArrayList<>(Collections.nCopies(requests.size(), null));
+            synchronized (this) {
+                // Slots taken earlier in this batch are not applied until written
+                Set<Long> taken = new HashSet<>();
+                List<Integer> positions = new ArrayList<>();
+                for (int i = 0; i < requests.size(); i++) {
+                    BookingPipeline.Request request = requests.get(i);
+                    long slot = slotKey(SymbolTable.doctors().intern(request.doctorName), request.date,
+                            SymbolTable.times().intern(request.time));
+                    if (!isBooked(request.doctorName, request.date, request.time) && taken.add(slot)) {
+                        positions.add(i);
+                    }
+                }
+                int id = positions.isEmpty() ? 0 : allocateIds(positions.size());
+                List<SimpleAppointment> accepted = new ArrayList<>(positions.size());
+                for (int position : positions) {
+                    BookingPipeline.Request request = requests.get(position);
+                    accepted.add(new SimpleAppointment(id++, request.patientName,
+                            request.doctorName, request.date, request.time, "scheduled"));
+                }
+                // One buffered append per segment for the whole batch
+                List<CompletableFuture<Boolean>> appended =
+                        appendRecords(accepted, java.time.LocalDateTime.now().toString());
+                for (int i = 0; i < positions.size(); i++) {
+                    written.set(positions.get(i), appended.get(i));
+                }
+            }
+            Set<Integer> booked = new HashSet<>();
+            for (int i = 0; i < requests.size(); i++) {
+                CompletableFuture<Boolean> write = written.get(i);
+                if (write == null) {
+                    results.set(i, BookingResult.CONFLICT);
+                } else if (write.join()) {
+                    results.set(i, BookingResult.BOOKED);
+                    booked.add(bookingLock.stripeOf(requests.get(i).doctorName));
+                }
+            }
+            for (Map.Entry<Integer, Long> stripe : versions.entrySet()) {
+                seenVersions[stripe.getKey()] = booked.contains(stripe.getKey())
+                        ? bookingLock.bump(stripe.getKey()) : stripe.getValue();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error booking appointments: " + e.getMessage());
+        } finally {
+            for (int stripe : locked) {
+                bookingLock.unlock(stripe);
+            }
+        }
+        return results;
+    }
+    
+    // Claims the slot in the reservation table. A slot can still look taken
+    // there after another workstation cancelled or moved its appointment, so
+    // if the doctor's stripe changed since this process last caught up, it
+    // catches up and tries once more.
+    private boolean claim(String doctorName, LocalDate date, String time) {
+        if (reservations.claim(doctorName, date, time)) {
+            return true;
+        }
+        if (binaryFormat || bookingLock == null || journal == null) {
+            return false;
+        }
+        int stripe = bookingLock.stripeOf(doctorName);
+        try {
+            if (bookingLock.version(stripe) == seenVersions[stripe]) {
+                return false;
+            }
+            long version = bookingLock.lock(stripe);
+            try {
+                if (version != seenVersions[stripe]) {
+                    journal.execute(this::followAppends).join();
+                    seenVersions[stripe] = version;
+                }
+            } finally {
+                bookingLock.unlock(stripe);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error booking appointment: " + e.getMessage());
+            return false;
+        }
+        return reservations.claim(doctorName, date, time);
+    }
+    
+    // Rolls back a reservation claim, unless the slot turned out to be booked
+    // (e.g. by another workstation) and so must stay reserved
+    private synchronized void unclaim(String doctorName, LocalDate date, String time) {
+        if (!isBooked(doctorName, date, time)) {
+            reservations.release(doctorName, date, time);
+        }
+    }
+    
+    // Runs a check-then-append under the doctor's booking lock stripe.
+    // checkAndAppend runs with this store locked and returns null if its
+    // check fails.
+    private BookingResult bookLocked(String doctorName, Supplier<CompletableFuture<Boolean>> checkAndAppend) {
+        if (bookingLock == null || journal == null) {
+            System.err.println("Error booking appointment: appointments journal is not open");
+            return BookingResult.FAILED;
+        }
+        int stripe = bookingLock.stripeOf(doctorName);
+        try {
+            long version = bookingLock.lock(stripe);
+            try {
+                if (version != seenVersions[stripe]) {
+                    // Someone else booked since we last looked; read their lines
+                    journal.execute(this::followAppends).join();
+                }
+                CompletableFuture<Boolean> written;
+                synchronized (this) {
+                    written = checkAndAppend.get();
+                }
+                if (written == null) {
+                    seenVersions[stripe] = version;
+                    return BookingResult.CONFLICT;
+                }
+                if (!written.join()) {
+                    seenVersions[stripe] = version;
+                    return BookingResult.FAILED;
+                }
+                seenVersions[stripe] = bookingLock.bump(stripe);
+                return BookingResult.BOOKED;
+            } finally {
+                bookingLock.unlock(stripe);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error booking appointment: " + e.getMessage());
+            return BookingResult.FAILED;
+        }
+    }
+    
+    public boolean cancelAppointment(int appointmentId) {
+        return updateAppointmentStatus(appointmentId, "cancelled");
+    }
+    
+    // Update appointment status. Like a booking it runs under the doctor's
+    // booking lock stripe and bumps its version, so other workstations catch
+    // up before they next book for the doctor and see a cancelled slot free.
+    public boolean updateAppointmentStatus(int appointmentId, String status) {
+        SimpleAppointment current;
+        synchronized (this) {
+            current = appointments.get(appointmentId);
+            if (current == null) {
+                return false;
+            }
+            if (binaryFormat) {
+                try {
+                    binaryLog.updateStatus(appointmentId - 1, status);
+                } catch (IOException e) {
+                    System.err.println("Error updating appointment status: " + e.getMessage());
+                    return false;
+                }
+                apply(binaryLog.read(appointmentId - 1));
+                return true;
+            }
+        }
+        return bookLocked(current.getDoctorName(), () -> {
+            SimpleAppointment appointment = appointments.get(appointmentId);
+            if (appointment == null) {
+                return null;
+            }
+            return appendVersion(appointment, new SimpleAppointment(appointmentId,
+                    appointment.getPatientName(), appointment.getDoctorName(),
+                    appointment.getAppointmentDate(), appointment.getAppointmentTime(), status));
+        }) == BookingResult.BOOKED;
+    }
+    
+    // Move an appointment to a new slot; fails if that slot is already taken
+    public boolean rescheduleAppointment(int appointmentId, LocalDate date, String time) {
+        SimpleAppointment current;
+        synchronized (this) {
+            current = appointments.get(appointmentId);
+        }
+        // Claims the new slot the same way tryBook does; the doctor never changes
+        if (current == null || !claim(current.getDoctorName(), date, time)) {
+            return false;
+        }
+        boolean moved = binaryFormat ? rescheduleBinary(appointmentId, date, time)
+                : bookLocked(current.getDoctorName(), () -> {
+                    SimpleAppointment appointment = appointments.get(appointmentId);
+                    if (appointment == null || appointment.getStatusCode() == CANCELLED
+                            || isBooked(appointment.getDoctorName(), date, time)) {
+                        return null;
+                    }
+                    return appendVersion(appointment, new SimpleAppointment(appointmentId,
+                            appointment.getPatientName(), appointment.getDoctorName(),
+                            date, time, appointment.getStatus()));
+                }) == BookingResult.BOOKED;
+        if (!moved) {
+            unclaim(current.getDoctorName(), date, time);
+        }
+        return moved;
+    }
+    
+    private synchronized boolean rescheduleBinary(int appointmentId, LocalDate date, String time) {
+        SimpleAppointment appointment = appointments.get(appointmentId);
+        if (appointment == null || appointment.getStatusCode() == CANCELLED
+                || isBooked(appointment.getDoctorName(), date, time)) {
+            return false;
+        }
+        try {
+            binaryLog.reschedule(appointmentId - 1, date, time);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error rescheduling appointment: " + e.getMessage());
+            return false;
+        }
+        apply(binaryLog.read(appointmentId - 1));
+        return true;
+    }
+    
+    public synchronized List<SimpleAppointment> getAllAppointments() {
+        return Collections.unmodifiableList(new ArrayList<>(appointments.values()));
+    }
+    
+    /**
+     * Up to limit appointments newest first (date, time and id descending),
+     * starting just after the given position, or at the newest one when date
+     * is null. Served from a sorted index in memory, so a deep page costs the
+     * same as the first.
+     */
+    public synchronized List<SimpleAppointment> getAppointmentsAfter(LocalDate date, String time, int id, int limit) {
+        Iterable<SimpleAppointment> after = date == null ? listing
+                : listing.tailSet(new SimpleAppointment(id, null, 0, date, time, 0), false);
+        List<SimpleAppointment> page = new ArrayList<>();
+        for (SimpleAppointment appointment : after) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(appointment);
+        }
+        return page;
+    }
+    
+    /**
+     * Appointments dated between start and end inclusive, ordered by date and
+     * time. Only the monthly segments covering the range are read.
+     */
+    public List<SimpleAppointment> getAppointmentsByDateRange(LocalDate start, LocalDate end) {
+        Predicate<SimpleAppointment> inRange = appointment ->
+                !appointment.getAppointmentDate().isBefore(start) && !appointment.getAppointmentDate().isAfter(end);
+        Stream<SimpleAppointment> matching;
+        if (binaryFormat) {
+            matching = streamAppointments(inRange, Long.MAX_VALUE);
+        } else {
+            List<Integer> covering;
+            synchronized (this) {
+                if (segments == null) {
+                    return new ArrayList<>();
+                }
+                covering = segments.between(start, end);
+            }
+            matching = streamSegments(covering).filter(inRange);
+        }
+        try (Stream<SimpleAppointment> stream = matching) {
+            return stream.sorted(Comparator.comparing(SimpleAppointment::getAppointmentDate)
+                            .thenComparing(SimpleAppointment::getAppointmentTime))
+                    .collect(Collectors.toList());
+        }
+    }
+    
+    /**
+     * Streams appointments lazily from the segment files instead of copying
+     * the whole list, skipping record versions that have been superseded.
+     * Compaction is held off while a stream is open, so close it (use
+     * try-with-resources) once done.
+     */
+    public Stream<SimpleAppointment> streamAppointments(Predicate<? super SimpleAppointment> filter, long limit) {
+        if (binaryFormat) {
+            int size;
+            synchronized (this) {
+                if (binaryLog == null) {
+                    return Stream.empty();
+                }
+                size = binaryLog.size();
+            }
+            return IntStream.range(0, size).mapToObj(binaryLog::read).filter(filter).limit(limit);
+        }
+        
+        List<Integer> all;
+        synchronized (this) {
+            if (segments == null) {
+                return Stream.empty();
+            }
+            all = segments.all();
+        }
+        return streamSegments(all).filter(filter).limit(limit);
+    }
+    
+    // Reads the given segments one after another, yielding only the latest
+    // version of each appointment
+    private Stream<SimpleAppointment> streamSegments(List<Integer> keys) {
+        synchronized (this) {
+            openStreams++;
+        }
+        SegmentReader records = new SegmentReader(keys);
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                records.close();
+            } catch (IOException e) {
+                System.err.println("Error closing appointments file: " + e.getMessage());
+            }
+            synchronized (this) {
+                openStreams--;
+                for (int segment : segments.all()) {
+                    maybeCompact(segment);
+                }
+            }
+        });
+    }
+    
+    private final class SegmentReader extends Spliterators.AbstractSpliterator<SimpleAppointment>
+            implements Closeable {
+        private final Iterator<Integer> remaining;
+        private final AppointmentRecordView record = new AppointmentRecordView();
+        private AppointmentRecords.LineReader reader;
+        private int segment;
+        
+        SegmentReader(List<Integer> keys) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.remaining = keys.iterator();
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super SimpleAppointment> action) {
+            try {
+                while (reader != null || remaining.hasNext()) {
+                    if (reader == null) {
+                        segment = remaining.next();
+                        reader = new AppointmentRecords.LineReader(segments.fileFor(segment));
+                    }
+                    // Superseded versions are skipped before anything is allocated
+                    while (reader.next()) {
+                        if (record.parse(reader.bytes(), reader.length()) && isLatestVersion(record.id(),
+                                AppointmentSegments.location(segment, reader.offset()))) {
+                            action.accept(record.toAppointment());
+                            return true;
+                        }
+                    }
+                    close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading appointments: " + e.getMessage());
+            }
+            return false;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+    
+    /**
+     * Counts appointments dated between start and end that match filter,
+     * reading the covering segments through one reused record view, so no
+     * appointment objects are created for the scan. In binary format the
+     * view reads the mapped records directly.
+     */
+    public long countAppointments(LocalDate start, LocalDate end, Predicate<? super AppointmentRecordView> filter) {
+        AppointmentRecordView record = new AppointmentRecordView();
+        long count = 0;
+        if (binaryFormat) {
+            BinaryAppointmentLog log;
+            synchronized (this) {
+                log = binaryLog;
+            }
+            if (log == null) {
+                return 0;
+            }
+            long from = start.toEpochDay();
+            long to = end.toEpochDay();
+            long[] matched = new long[1];
+            log.scan(binary -> {
+                if (binary.epochDay() >= from && binary.epochDay() <= to) {
+                    record.parse(binary);
+                    if (filter.test(record)) {
+                        matched[0]++;
+                    }
+                }
+            });
+            return matched[0];
+        }
+        
+        List<Integer> covering;
+        synchronized (this) {
+            if (segments == null) {
+                return 0;
+            }
+            openStreams++;
+            covering = segments.between(start, end);
+        }
+        int from = dayKey(start.getYear(), start.getMonthValue(), start.getDayOfMonth());
+        int to = dayKey(end.getYear(), end.getMonthValue(), end.getDayOfMonth());
+        try {
+            for (int segment : covering) {
+                try (AppointmentRecords.LineReader reader = new AppointmentRecords.LineReader(segments.fileFor(segment))) {
+                    while (reader.next()) {
+                        if (!record.parse(reader.bytes(), reader.length())) {
+                            continue;
+                        }
+                        int day = dayKey(record.year(), record.month(), record.dayOfMonth());
+                        if (day >= from && day <= to && filter.test(record)
+                                && isLatestVersion(record.id(), AppointmentSegments.location(segment, reader.offset()))) {
+                            count++;
+                        }
+                    }
                 }
             }
         } catch (IOException e) {
             System.err.println("Error reading appointments: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                openStreams--;
+            }
+        }
+        return count;
+    }
+    
+    private static int dayKey(int year, int month, int day) {
+        return year * 10000 + month * 100 + day;
+    }
+    
+    private synchronized boolean isLatestVersion(int appointmentId, long location) {
+        Long latest = locations.get(appointmentId);
+        return latest != null && latest == location;
+    }
+    
+    /**
+     * Looks up one appointment with a single positioned read of its latest
+     * record, located through the id to location index.
+     */
+    public SimpleAppointment getAppointmentById(int appointmentId) {
+        Long location;
+        synchronized (this) {
+            if (binaryFormat) {
+                return binaryLog != null && appointmentId >= 1 && appointmentId <= binaryLog.size()
+                        ? binaryLog.read(appointmentId - 1)
+                        : null;
+            }
+            location = locations.get(appointmentId);
+            if (location == null) {
+                return null;
+            }
+        }
+        try {
+            String[] parts = readRecordAt(location).split("\\|");
+            if (AppointmentRecords.isRecord(parts) && Integer.parseInt(parts[0]) == appointmentId
+                    && !AppointmentRecords.MOVED.equals(parts[5])) {
+                return AppointmentRecords.parse(parts);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading appointment " + appointmentId + ": " + e.getMessage());
+        }
+        // The segment was compacted under us; the in-memory copy is current
+        synchronized (this) {
+            return appointments.get(appointmentId);
         }
-        return appointments;
     }
     
+    /**
+     * True if the slot is booked or a booking for it is in flight. For HH:MM
+     * times on the reservation grid this is a lock-free bit test.
+     */
     public boolean hasConflict(String doctorName, LocalDate date, String time) {
-        List<SimpleAppointment> appointments = getAllAppointments();
-        return appointments.stream()
-                .anyMatch(apt -> apt.getDoctorName().equals(doctorName) 
-                        && apt.getAppointmentDate().equals(date)
-                        && apt.getAppointmentTime().equals(time)
-                        && !"cancelled".equals(apt.getStatus()));
-    }
-}
\ No newline at end of file
+        if (SlotReservationTable.covers(time)) {
+            return reservations.isReserved(doctorName, date, time);
+        }
+        return isBooked(doctorName, date, time);
+    }
+    
+    // The authoritative check, against appointments applied to this store
+    private synchronized boolean isBooked(String doctorName, LocalDate date, String time) {
+        int doctor = SymbolTable.doctors().codeOf(doctorName);
+        int slotTime = SymbolTable.times().codeOf(time);
+        // A doctor or time never seen before cannot be booked yet
+        return doctor >= 0 && slotTime >= 0 && bookedSlots.containsKey(slotKey(doctor, date, slotTime));
+    }
+    
+    // Writes a new version of an existing record, keeping its creation time.
+    // If the appointment changes month, its old segment gets a "moved" version.
+    private CompletableFuture<Boolean> appendVersion(SimpleAppointment current, SimpleAppointment updated) {
+        String createdAt = java.time.LocalDateTime.now().toString();
+        try {
+            String[] parts = readRecordAt(locations.get(current.getId())).split("\\|");
+            if (AppointmentRecords.isRecord(parts)) {
+                createdAt = AppointmentRecords.createdAt(parts);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading appointment " + current.getId() + ": " + e.getMessage());
+        }
+        
+        CompletableFuture<Boolean> written = appendRecord(updated, createdAt);
+        int from = AppointmentSegments.keyOf(current.getAppointmentDate());
+        if (from == AppointmentSegments.keyOf(updated.getAppointmentDate())) {
+            return written;
+        }
+        CompletableFuture<Boolean> marked = appendMovedMarker(from, new SimpleAppointment(current.getId(),
+                current.getPatientName(), current.getDoctorName(), current.getAppointmentDate(),
+                current.getAppointmentTime(), AppointmentRecords.MOVED), createdAt);
+        return written.thenCombine(marked, (saved, moved) -> {
+            if (saved && !moved) {
+                // Until the marker is written the old segment still has a live
+                // version; both carry the same id and the later month wins
+                System.err.println("Error marking appointment " + current.getId() + " as moved");
+            }
+            return saved;
+        });
+    }
+    
+    // Appends one record through the journal to its month's segment and
+    // applies it to the in-memory view and the index once it is on disk
+    private CompletableFuture<Boolean> appendRecord(SimpleAppointment appointment, String createdAt) {
+        if (journal == null) {
+            System.err.println("Error saving appointment: appointments journal is not open");
+            return CompletableFuture.completedFuture(false);
+        }
+        int segment = AppointmentSegments.keyOf(appointment.getAppointmentDate());
+        File segmentFile;
+        try {
+            segmentFile = segments.register(segment);
+        } catch (IOException e) {
+            System.err.println("Error saving appointment: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+        String line = AppointmentRecords.format(appointment, createdAt);
+        return journal.append(segmentFile, line)
+                .handle((offset, error) -> recordAppended(appointment, segment, line, offset, error));
+    }
+    
+    // Like appendRecord() for many records, writing each month's lines with
+    // one journal entry; the futures are in the order of appointments
+    private List<CompletableFuture<Boolean>> appendRecords(List<SimpleAppointment> appointments, String createdAt) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(
+                Collections.nCopies(appointments.size(), CompletableFuture.completedFuture(false)));
+        if (journal == null) {
+            System.err.println("Error saving appointment: appointments journal is not open");
+            return results;
+        }
+        Map<Integer, List<Integer>> bySegment = new TreeMap<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            bySegment.computeIfAbsent(AppointmentSegments.keyOf(appointments.get(i).getAppointmentDate()),
+                    segment -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<Integer, List<Integer>> group : bySegment.entrySet()) {
+            int segment = group.getKey();
+            File segmentFile;
+            try {
+                segmentFile = segments.register(segment);
+            } catch (IOException e) {
+                System.err.println("Error saving appointment: " + e.getMessage());
+                continue;
+            }
+            List<String> lines = new ArrayList<>(group.getValue().size());
+            for (int i : group.getValue()) {
+                lines.add(AppointmentRecords.format(appointments.get(i), createdAt));
+            }
+            List<CompletableFuture<Long>> offsets = journal.appendAll(segmentFile, lines);
+            for (int j = 0; j < lines.size(); j++) {
+                SimpleAppointment appointment = appointments.get(group.getValue().get(j));
+                String line = lines.get(j);
+                results.set(group.getValue().get(j), offsets.get(j)
+                        .handle((offset, error) -> recordAppended(appointment, segment, line, offset, error)));
+            }
+        }
+        return results;
+    }
+    
+    // Applies a record to the in-memory view and the index once it is on disk
+    private boolean recordAppended(SimpleAppointment appointment, int segment, String line, Long offset,
+                                   Throwable error) {
+        if (error != null) {
+            System.err.println("Error saving appointment: " + error.getMessage());
+            return false;
+        }
+        long location = AppointmentSegments.location(segment, offset);
+        synchronized (this) {
+            segmentRecords.merge(segment, 1, Integer::sum);
+            recordOwnLine(segment, offset, line);
+            applyAt(appointment, location);
+            maybeCompact(segment);
+        }
+        try {
+            offsetIndex.append(appointment.getId(), location);
+        } catch (IOException e) {
+            // The index is rebuilt from the segments on the next start
+            System.err.println("Error updating appointment index: " + e.getMessage());
+        }
+        return true;
+    }
+    
+    private CompletableFuture<Boolean> appendMovedMarker(int segment, SimpleAppointment marker, String createdAt) {
+        String line = AppointmentRecords.format(marker, createdAt);
+        return journal.append(segments.fileFor(segment), line).handle((offset, error) -> {
+            if (error != null) {
+                System.err.println("Error saving appointment: " + error.getMessage());
+                return false;
+            }
+            synchronized (this) {
+                segmentRecords.merge(segment, 1, Integer::sum);
+                recordOwnLine(segment, offset, line);
+                maybeCompact(segment);
+            }
+            return true;
+        });
+    }
+    
+    // Reads every segment once; afterwards all reads are served from memory,
+    // with only lines other workstations append read from the files again
+    private synchronized void loadAppointments() {
+        appointments.clear();
+        listing.clear();
+        bookedSlots.clear();
+        reservations.clear();
+        locations.clear();
+        segmentRecords.clear();
+        segmentLive.clear();
+        consumed.clear();
+        for (FileChannel channel : segmentChannels.values()) {
+            AppointmentJournal.closeReader(channel);
+        }
+        segmentChannels.clear();
+        segmentFileKeys.clear();
+        ownLines.clear();
+        nextId = 1;
+        if (binaryFormat) {
+            if (binaryLog != null) {
+                binaryLog.scan(record -> apply(record.toAppointment()));
+            }
+            return;
+        }
+        if (segments == null) {
+            return;
+        }
+        
+        for (int segment : segments.all()) {
+            readSegment(segment);
+        }
+        
+        verifyOffsetIndex();
+        for (int segment : segments.all()) {
+            maybeCompact(segment);
+        }
+    }
+    
+    /** Returns a Runnable that removes the listener again. */
+    public Runnable addAppointmentListener(AppointmentListener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+    
+    private boolean isFollowing() {
+        return !binaryFormat && journal != null && followPollMillis > 0;
+    }
+    
+    // Waits for change events on clinic_data, or at most followPollMillis
+    // for file systems (such as network shares) that do not deliver them,
+    // then reads whatever has been appended since the last pass
+    private void followLoop() {
+        WatchService watcher = null;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            new File(DATA_DIR).toPath().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Watching " + DATA_DIR + " failed, polling instead: " + e.getMessage());
+            watcher = null;
+        }
+        while (!journal.isClosed()) {
+            try {
+                if (watcher != null) {
+                    WatchKey key = watcher.poll(followPollMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                } else {
+                    Thread.sleep(followPollMillis);
+                }
+                // On the journal thread, so lines this process wrote are
+                // already applied and recorded in ownLines
+                journal.execute(this::followAppends).join();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                if (!journal.isClosed()) {
+                    System.err.println("Error following appointments: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void followAppends() {
+        List<SimpleAppointment> changed = new ArrayList<>();
+        synchronized (this) {
+            try {
+                segments.refresh();
+            } catch (IOException e) {
+                System.err.println("Error reading appointment segments: " + e.getMessage());
+            }
+            for (int segment : segments.all()) {
+                changed.addAll(readSegment(segment));
+            }
+        }
+        notifyListeners(changed);
+    }
+    
+    private void notifyListeners(List<SimpleAppointment> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<SimpleAppointment> view = Collections.unmodifiableList(changed);
+        for (AppointmentListener listener : listeners) {
+            listener.appointmentsChanged(view);
+        }
+    }
+    
+    // Reads the complete lines appended to one segment since the last read and
+    // applies the final version of each appointment among them. Lines this
+    // process wrote were applied when written and are skipped. Returns the
+    // appointments that changed.
+    private List<SimpleAppointment> readSegment(int segment) {
+        long from = consumed.getOrDefault(segment, 0L);
+        FileChannel channel;
+        try {
+            channel = segmentChannels.get(segment);
+            if (channel != null && (channel.size() < from || !Objects.equals(
+                    AppointmentJournal.fileKey(segments.fileFor(segment)), segmentFileKeys.get(segment)))) {
+                // Another workstation compacted this segment; read it again
+                forgetSegment(segment);
+                channel = null;
+                from = 0;
+            }
+            if (channel == null) {
+                channel = openSegment(segment);
+            }
+            if (channel.size() <= from) {
+                return Collections.emptyList();
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading appointments: " + e.getMessage());
+            return Collections.emptyList();
+        }
+        
+        Map<Integer, SimpleAppointment> latest = new LinkedHashMap<>();
+        Map<Integer, Long> latestOffsets = new HashMap<>();
+        Set<Integer> ownLatest = new HashSet<>();
+        Set<Long> own = ownLines.getOrDefault(segment, Collections.emptySet());
+        int records = 0;
+        AppointmentRecordView record = new AppointmentRecordView();
+        try (AppointmentRecords.LineReader reader = new AppointmentRecords.LineReader(channel, from)) {
+            // A line without its newline may still be being written
+            while (reader.next() && reader.terminated()) {
+                from = reader.end();
+                if (!record.parse(reader.bytes(), reader.length())) {
+                    continue;
+                }
+                // A "moved" version is kept as null: it only hides earlier
+                // versions in its own segment, the new one is in its new month
+                latest.put(record.id(), record.hasStatus(AppointmentRecords.MOVED) ? null : record.toAppointment());
+                latestOffsets.put(record.id(), reader.offset());
+                if (own.remove(reader.offset())) {
+                    ownLatest.add(record.id());
+                } else {
+                    ownLatest.remove(record.id());
+                    records++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading appointments: " + e.getMessage());
+        }
+        consumed.put(segment, from);
+        segmentRecords.merge(segment, records, Integer::sum);
+        
+        List<SimpleAppointment> changed = new ArrayList<>();
+        for (SimpleAppointment appointment : latest.values()) {
+            if (appointment != null && !ownLatest.contains(appointment.getId())) {
+                applyAt(appointment, AppointmentSegments.location(segment, latestOffsets.get(appointment.getId())));
+                changed.add(appointment);
+            }
+        }
+        return changed;
+    }
+    
+    // Drops everything known about one segment before reading it from scratch
+    private void forgetSegment(int segment) {
+        Iterator<Map.Entry<Integer, Long>> entries = locations.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, Long> entry = entries.next();
+            if (AppointmentSegments.segmentOf(entry.getValue()) == segment) {
+                SimpleAppointment appointment = appointments.remove(entry.getKey());
+                if (appointment != null) {
+                    listing.remove(appointment);
+                    releaseSlot(appointment);
+                }
+                entries.remove();
+            }
+        }
+        segmentRecords.remove(segment);
+        segmentLive.remove(segment);
+        ownLines.remove(segment);
+        consumed.remove(segment);
+        FileChannel channel = segmentChannels.remove(segment);
+        if (channel != null) {
+            AppointmentJournal.closeReader(channel);
+        }
+        segmentFileKeys.remove(segment);
+    }
+    
+    // Opens the segment's read channel along with the file key of what it
+    // opened; a key that changes meanwhile means the file was just replaced
+    private FileChannel openSegment(int segment) throws IOException {
+        File file = segments.fileFor(segment);
+        while (true) {
+            Object fileKey = AppointmentJournal.fileKey(file);
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            if (fileKey != null && fileKey.equals(AppointmentJournal.fileKey(file))) {
+                segmentChannels.put(segment, channel);
+                segmentFileKeys.put(segment, fileKey);
+                return channel;
+            }
+            AppointmentJournal.closeReader(channel);
+        }
+    }
+    
+    // Notes a line this process has written so reading the segment back does
+    // not apply it twice. While nobody else appends, consumed just moves past it.
+    private void recordOwnLine(int segment, long offset, String line) {
+        if (!segmentChannels.containsKey(segment)) {
+            try {
+                openSegment(segment);
+            } catch (IOException e) {
+                // readSegment() opens it and reads the segment from the start
+                System.err.println("Error reading appointments: " + e.getMessage());
+                consumed.remove(segment);
+                return;
+            }
+        }
+        if (consumed.getOrDefault(segment, 0L) == offset) {
+            consumed.put(segment, offset + (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length);
+        } else {
+            ownLines.computeIfAbsent(segment, key -> new HashSet<>()).add(offset);
+        }
+    }
+    
+    // Rebuilds appointments.idx if it does not match what the scan found
+    private void verifyOffsetIndex() {
+        if (offsetIndex == null) {
+            return;
+        }
+        try {
+            if (!offsetIndex.load().equals(locations)) {
+                System.out.println("Rebuilding " + APPOINTMENTS_INDEX_FILE);
+                offsetIndex.rebuild(locations);
+            }
+        } catch (IOException e) {
+            System.err.println("Error rebuilding appointment index: " + e.getMessage());
+        }
+    }
+    
+    private void applyAt(SimpleAppointment appointment, long location) {
+        apply(appointment);
+        Long previous = locations.put(appointment.getId(), location);
+        int segment = AppointmentSegments.segmentOf(location);
+        if (previous == null || AppointmentSegments.segmentOf(previous) != segment) {
+            segmentLive.merge(segment, 1, Integer::sum);
+            if (previous != null) {
+                segmentLive.merge(AppointmentSegments.segmentOf(previous), -1, Integer::sum);
+            }
+        }
+    }
+    
+    // Adds a new appointment or replaces an earlier version of it. Appointments
+    // handed out by getAllAppointments() are never mutated.
+    private void apply(SimpleAppointment appointment) {
+        SimpleAppointment previous = appointments.put(appointment.getId(), appointment);
+        if (previous != null) {
+            listing.remove(previous);
+            releaseSlot(previous);
+        }
+        listing.add(appointment);
+        claimSlot(appointment);
+        nextId = Math.max(nextId, appointment.getId() + 1);
+    }
+    
+    private void claimSlot(SimpleAppointment appointment) {
+        if (appointment.getStatusCode() != CANCELLED
+                && bookedSlots.merge(slotKey(appointment), 1, Integer::sum) == 1) {
+            // Already set if this store claimed it for the booking
+            reservations.claim(appointment.getDoctorName(), appointment.getAppointmentDate(),
+                    appointment.getAppointmentTime());
+        }
+    }
+    
+    private void releaseSlot(SimpleAppointment appointment) {
+        if (appointment.getStatusCode() != CANCELLED
+                && bookedSlots.computeIfPresent(slotKey(appointment), (slot, count) -> count > 1 ? count - 1 : null) == null) {
+            reservations.release(appointment.getDoctorName(), appointment.getAppointmentDate(),
+                    appointment.getAppointmentTime());
+        }
+    }
+    
+    // Next appointment id. In text mode it comes from booking.lock, so
+    // workstations booking different doctors at once never share an id.
+    private int allocateId() {
+        return allocateIds(1);
+    }
+    
+    // First of count consecutive ids, taken from booking.lock in one go
+    private int allocateIds(int count) {
+        if (bookingLock == null) {
+            nextId += count;
+            return nextId - count;
+        }
+        try {
+            nextId = bookingLock.nextIds(nextId, count) + count;
+            return nextId - count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static long slotKey(SimpleAppointment appointment) {
+        return slotKey(appointment.getDoctorCode(), appointment.getAppointmentDate(),
+                SymbolTable.times().intern(appointment.getAppointmentTime()));
+    }
+    
+    // Doctor code (24 bits), time code (16 bits) and epoch day (24 bits)
+    private static long slotKey(int doctor, LocalDate date, int time) {
+        return ((long) doctor << 40) | ((long) (time & 0xFFFF) << 24) | (date.toEpochDay() & 0xFFFFFF);
+    }
+    
+    private String readRecordAt(long location) throws IOException {
+        return AppointmentRecords.readLineAt(segments.fileFor(AppointmentSegments.segmentOf(location)),
+                AppointmentSegments.offsetOf(location));
+    }
+    
+    // Schedules a background rewrite of one segment once superseded record
+    // versions and moved markers make up more than compactionThreshold of it
+    private void maybeCompact(int segment) {
+        int records = segmentRecords.getOrDefault(segment, 0);
+        int superseded = records - segmentLive.getOrDefault(segment, 0);
+        if (journal == null || compacting.contains(segment) || openStreams > 0
+                || superseded < compactionMinUpdates || superseded <= compactionThreshold * records) {
+            return;
+        }
+        compacting.add(segment);
+        Compaction compaction = new Compaction();
+        journal.rewrite(segments.fileFor(segment), (current, replacement) ->
+                writeSnapshot(segment, current, replacement, compaction))
+                .whenComplete((size, error) -> compactionFinished(segment, compaction, size, error));
+    }
+    
+    // What writeSnapshot() hands on to compactionFinished()
+    private static final class Compaction {
+        final Map<Integer, Long> locations = new HashMap<>();
+        final List<SimpleAppointment> changed = new ArrayList<>();
+        // Opened on the new file before it replaced the segment, so reads
+        // continue on exactly the file the locations point into
+        FileChannel channel;
+        Object fileKey;
+    }
+    
+    private void compactionFinished(int segment, Compaction compaction, Long size, Throwable error) {
+        // Lines other workstations had appended, picked up before the rewrite
+        notifyListeners(compaction.changed);
+        Map<Integer, Long> rebuilt;
+        try {
+            synchronized (this) {
+                compacting.remove(segment);
+                if (error != null) {
+                    if (compaction.channel != null) {
+                        AppointmentJournal.closeReader(compaction.channel);
+                    }
+                    return;
+                }
+                locations.putAll(compaction.locations);
+                segmentRecords.put(segment, compaction.locations.size());
+                consumed.put(segment, size);
+                FileChannel old = segmentChannels.put(segment, compaction.channel);
+                if (old != null) {
+                    AppointmentJournal.closeReader(old);
+                }
+                segmentFileKeys.put(segment, compaction.fileKey);
+                ownLines.remove(segment);
+                rebuilt = new HashMap<>(locations);
+            }
+        } finally {
+            if (compactionLocked) {
+                compactionLocked = false;
+                bookingLock.unlockAll();
+            }
+        }
+        try {
+            offsetIndex.rebuild(rebuilt);
+        } catch (IOException e) {
+            System.err.println("Error rebuilding appointment index: " + e.getMessage());
+        }
+        System.out.println("Compacted " + segments.fileFor(segment) + " to " + size + " bytes");
+    }
+    
+    // Rewrites one segment with only the latest version of each appointment
+    // that still lives there, in id order. Runs on the journal thread with
+    // the segment locked against other workstations' appends, so the file
+    // and the in-memory view are in step while it runs.
+    private void writeSnapshot(int segment, FileChannel current, File replacement,
+                               Compaction compaction) throws IOException {
+        Map<Integer, SimpleAppointment> latest = new TreeMap<>();
+        Map<Integer, Long> latestOffsets = new HashMap<>();
+        // Hold every booking lock stripe until compactionFinished() so no
+        // workstation books into the segment while it is being replaced
+        if (bookingLock != null) {
+            if (!bookingLock.tryLockAll()) {
+                throw new IOException("booking lock is busy, will retry");
+            }
+            compactionLocked = true;
+        }
+        synchronized (this) {
+            // Pick up other workstations' lines so they are not dropped
+            compaction.changed.addAll(readSegment(segment));
+            for (Map.Entry<Integer, Long> entry : locations.entrySet()) {
+                if (AppointmentSegments.segmentOf(entry.getValue()) == segment) {
+                    latest.put(entry.getKey(), appointments.get(entry.getKey()));
+                    latestOffsets.put(entry.getKey(), AppointmentSegments.offsetOf(entry.getValue()));
+                }
+            }
+        }
+        
+        // Creation times live only in the file, on each id's latest version
+        Map<Integer, String> createdAt = new HashMap<>();
+        AppointmentRecords.forEachRecord(current, (offset, record) -> {
+            Long latestOffset = latestOffsets.get(record.id());
+            if (latestOffset != null && latestOffset == offset) {
+                createdAt.put(record.id(), record.createdAt());
+            }
+        });
+        
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(replacement))) {
+            long position = 0;
+            for (SimpleAppointment appointment : latest.values()) {
+                String created = createdAt.getOrDefault(appointment.getId(),
+                        java.time.LocalDateTime.now().toString());
+                byte[] record = (AppointmentRecords.format(appointment, created) + System.lineSeparator())
+                        .getBytes(StandardCharsets.UTF_8);
+                out.write(record);
+                compaction.locations.put(appointment.getId(), AppointmentSegments.location(segment, position));
+                position += record.length;
+            }
+        }
+        compaction.channel = FileChannel.open(replacement.toPath(), StandardOpenOption.READ);
+        compaction.fileKey = AppointmentJournal.fileKey(replacement);
+    }
+}
@@ -0,0 +1,147 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counting Bloom filter of booked doctor/time slots, one per appointment
+ * day, used to answer hasConflict() without a database round trip when a
+ * slot is certainly free.
+ *
+ * mightContain() never returns false for a slot that was added and not
+ * removed, so a negative answer is final and only a positive one has to be
+ * confirmed by the authoritative query. Each day gets its own array of
+ * saturating byte counters so cancellations can be taken back out; a
+ * counter that reaches 255 stays there rather than risk a false negative.
+ *
+ * The filter only knows about bookings made through this process and the
+ * rows loaded into it at startup, so it is only safe where this process is
+ * the only writer to the table.
+ *
+ * Slots before the first day it was built from are not tracked:
+ * mightContain() answers true for them, so their checks always query, and
+ * the filter holds no counters for past days it was never told about.
+ */
+public final class SlotBloomFilter {
+    private static final int HASHES = 4;
+    private static final int SATURATED = 0xFF;
+
+    private final int countersPerDay;
+    private final long firstDay;
+    private final Map<Long, byte[]> days = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /** countersPerDay is rounded up to a power of two. */
+    public SlotBloomFilter(int countersPerDay) {
+        this(countersPerDay, LocalDate.MIN);
+    }
+
+    /** Tracks slots from firstDay on; countersPerDay is rounded up to a power of two. */
+    public SlotBloomFilter(int countersPerDay, LocalDate firstDay) {
+        this.countersPerDay = Integer.highestOneBit(Math.max(64, countersPerDay) * 2 - 1);
+        this.firstDay = firstDay.toEpochDay();
+    }
+
+    public synchronized void add(String doctorName, LocalDate date, String time) {
+        if (date.toEpochDay() < firstDay) {
+            return;
+        }
+        byte[] counters = days.computeIfAbsent(date.toEpochDay(), day -> new byte[countersPerDay]);
+        long hash = hash(doctorName, time);
+        for (int i = 0; i < HASHES; i++) {
+            int slot = slot(hash, i);
+            if ((counters[slot] & 0xFF) < SATURATED) {
+                counters[slot]++;
+            }
+        }
+    }
+
+    /** Takes back one add() of the same slot, e.g. when it is cancelled. */
+    public synchronized void remove(String doctorName, LocalDate date, String time) {
+        byte[] counters = days.get(date.toEpochDay());
+        if (counters == null) {
+            return;
+        }
+        long hash = hash(doctorName, time);
+        for (int i = 0; i < HASHES; i++) {
+            int slot = slot(hash, i);
+            int count = counters[slot] & 0xFF;
+            if (count > 0 && count < SATURATED) {
+                counters[slot]--;
+            }
+        }
+    }
+
+    /** False only if the slot is certainly not booked; counts a hit or a miss. */
+    public synchronized boolean mightContain(String doctorName, LocalDate date, String time) {
+        if (date.toEpochDay() < firstDay) {
+            return true;
+        }
+        byte[] counters = days.get(date.toEpochDay());
+        boolean found = counters != null;
+        long hash = hash(doctorName, time);
+        for (int i = 0; found && i < HASHES; i++) {
+            found = counters[slot(hash, i)] != 0;
+        }
+        (found ? hits : misses).incrementAndGet();
+        return found;
+    }
+
+    /** Called when the authoritative check found a slot free after a hit. */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    public synchronized void clear() {
+        days.clear();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long falsePositives() {
+        return falsePositives.get();
+    }
+
+    public int countersPerDay() {
+        return countersPerDay;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SlotBloomFilter[days=%d, countersPerDay=%d, hits=%d, misses=%d, falsePositives=%d]",
+                days.size(), countersPerDay, hits(), misses(), falsePositives());
+    }
+
+    private int slot(long hash, int i) {
+        // Kirsch-Mitzenmacher: the i-th index is h1 + i * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return (h1 + i * h2) & (countersPerDay - 1);
+    }
+
+    // 64-bit FNV-1a over doctor, a separator and time
+    private static long hash(String doctorName, String time) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, doctorName);
+        hash = (hash ^ '|') * 0x100000001b3L;
+        hash = mix(hash, time);
+        return hash ^ (hash >>> 29);
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,121 @@
+package clinicappointmentschedulingsystem;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free in-memory map of taken slots: one bitmap per doctor and day,
+ * one bit per SLOT_MINUTES of the day.
+ *
+ * A booking claims its bit with a compare-and-set before doing any I/O,
+ * so of two threads racing for the same slot exactly one gets past
+ * claim() and the other is turned away without touching a lock; the
+ * winner releases the bit again if its write fails. Testing a slot is a
+ * single volatile read.
+ *
+ * Only HH:MM times on the SLOT_MINUTES grid ("09:00", "09:05") have a
+ * bit, so two spellings of one time never share a bit that only one of
+ * them has booked. For any other time the table abstains (claim() and release() succeed,
+ * isReserved() says false) and the caller's own check decides.
+ */
+public final class SlotReservationTable {
+    public static final int SLOT_MINUTES = 5;
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int WORDS_PER_DAY = (SLOTS_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final ConcurrentHashMap<Long, AtomicLongArray> days = new ConcurrentHashMap<>();
+
+    /** True if the slot is claimed; false if free or off the grid. */
+    public boolean isReserved(String doctorName, LocalDate date, String time) {
+        int slot = slotOf(time);
+        int doctor = SymbolTable.doctors().codeOf(doctorName);
+        if (slot < 0 || doctor < 0) {
+            return false;
+        }
+        AtomicLongArray bits = days.get(key(doctor, date));
+        return bits != null && (bits.get(slot / Long.SIZE) & mask(slot)) != 0;
+    }
+
+    /** Sets the slot's bit; false if it was already set. */
+    public boolean claim(String doctorName, LocalDate date, String time) {
+        int slot = slotOf(time);
+        if (slot < 0) {
+            return true;
+        }
+        AtomicLongArray bits = days.computeIfAbsent(key(SymbolTable.doctors().intern(doctorName), date),
+                day -> new AtomicLongArray(WORDS_PER_DAY));
+        int word = slot / Long.SIZE;
+        long mask = mask(slot);
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /** Clears the slot's bit, e.g. on cancellation or when a claimed write fails. */
+    public void release(String doctorName, LocalDate date, String time) {
+        int slot = slotOf(time);
+        int doctor = SymbolTable.doctors().codeOf(doctorName);
+        AtomicLongArray bits = slot < 0 || doctor < 0 ? null : days.get(key(doctor, date));
+        if (bits == null) {
+            return;
+        }
+        int word = slot / Long.SIZE;
+        long mask = mask(slot);
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) == 0 || bits.compareAndSet(word, current, current & ~mask)) {
+                return;
+            }
+        }
+    }
+
+    public void clear() {
+        days.clear();
+    }
+
+    /** True if time has a bit, i.e. the table answers for it. */
+    public static boolean covers(String time) {
+        return slotOf(time) >= 0;
+    }
+
+    /** Bit index of an HH:MM time on the grid, or -1. */
+    private static int slotOf(String time) {
+        if (time == null || time.length() != 5 || time.charAt(2) != ':') {
+            return -1;
+        }
+        int hours = digits(time, 0, 2);
+        int minutes = digits(time, 3, 5);
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || minutes % SLOT_MINUTES != 0) {
+            return -1;
+        }
+        return (hours * 60 + minutes) / SLOT_MINUTES;
+    }
+
+    private static int digits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    // Doctor's SymbolTable code in the high half, epoch day in the low
+    private static long key(int doctor, LocalDate date) {
+        return ((long) doctor << 32) | (date.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    private static long mask(int slot) {
+        return 1L << (slot % Long.SIZE);
+    }
+}
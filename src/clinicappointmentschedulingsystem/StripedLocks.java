@@ -0,0 +1,40 @@
+package clinicappointmentschedulingsystem;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed table of locks that keys hash onto, so work on different keys
+ * (here, different doctors) can run in parallel while work on the same key
+ * is serialized, without keeping a lock per key.
+ *
+ * Two keys may share a stripe; that only costs some parallelism, never
+ * correctness. The number of stripes is rounded up to a power of two.
+ */
+public final class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public int size() {
+        return locks.length;
+    }
+
+    public int stripeOf(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+
+    public ReentrantLock forKey(Object key) {
+        return locks[stripeOf(key)];
+    }
+
+    public ReentrantLock get(int stripe) {
+        return locks[stripe];
+    }
+}
@@ -0,0 +1,129 @@
+package clinicappointmentschedulingsystem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary mapping the few distinct doctor names and
+ * statuses to small int codes.
+ *
+ * Appointment models and the in-memory indexes keep codes instead of their
+ * own String copies, so every appointment with the same doctor shares one
+ * String and comparing two doctors is an int comparison. Codes are only
+ * stable within a process; anything written to disk either stores the
+ * names (the text segments) or keeps its own code mapping (the binary log).
+ */
+public final class SymbolTable {
+    private static final SymbolTable DOCTORS = new SymbolTable();
+    private static final SymbolTable STATUSES = new SymbolTable();
+    private static final SymbolTable TIMES = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    // UTF-8 bytes of each name, for lookups straight from a record line
+    private byte[][] encoded = new byte[16][];
+    // Open-addressing table of code + 1 (0 means empty), keyed by byte hash
+    private int[] byBytes = new int[64];
+    private int size;
+
+    private SymbolTable() {
+    }
+
+    public static SymbolTable doctors() {
+        return DOCTORS;
+    }
+
+    public static SymbolTable statuses() {
+        return STATUSES;
+    }
+
+    /** Appointment times as written ("09:00"), used for slot keys. */
+    static SymbolTable times() {
+        return TIMES;
+    }
+
+    /** Code for name, adding it if it is new; -1 for null. */
+    public int intern(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer code = codes.get(name);
+        return code != null ? code : add(name, name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Code for name, or -1 if it has never been interned. */
+    public int codeOf(String name) {
+        Integer code = name == null ? null : codes.get(name);
+        return code != null ? code : -1;
+    }
+
+    /** Code for the UTF-8 name in bytes[start, start + length), decoding it only if it is new. */
+    public synchronized int intern(byte[] bytes, int start, int length) {
+        int mask = byBytes.length - 1;
+        for (int slot = hash(bytes, start, length) & mask; ; slot = (slot + 1) & mask) {
+            int entry = byBytes[slot];
+            if (entry == 0) {
+                break;
+            }
+            byte[] candidate = encoded[entry - 1];
+            if (Arrays.equals(candidate, 0, candidate.length, bytes, start, start + length)) {
+                return entry - 1;
+            }
+        }
+        return add(new String(bytes, start, length, StandardCharsets.UTF_8),
+                Arrays.copyOfRange(bytes, start, start + length));
+    }
+
+    /** The shared String for code, or null for -1. */
+    public String nameOf(int code) {
+        return code < 0 ? null : names[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private synchronized int add(String name, byte[] utf8) {
+        Integer existing = codes.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int code = size++;
+        if (code == names.length) {
+            encoded = Arrays.copyOf(encoded, code * 2);
+            names = Arrays.copyOf(names, code * 2);
+        }
+        encoded[code] = utf8;
+        String[] published = names;
+        published[code] = name;
+        names = published;
+        if (size * 2 > byBytes.length) {
+            byBytes = new int[byBytes.length * 2];
+            for (int i = 0; i < size - 1; i++) {
+                insert(i);
+            }
+        }
+        insert(code);
+        codes.put(name, code);
+        return code;
+    }
+
+    private void insert(int code) {
+        byte[] bytes = encoded[code];
+        int mask = byBytes.length - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (byBytes[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        byBytes[slot] = code + 1;
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 1;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
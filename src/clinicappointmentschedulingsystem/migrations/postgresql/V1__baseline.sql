@@ -0,0 +1,62 @@
+-- Schema as PostgreSQLManager created it before migrations existed.
+-- Every statement tolerates objects that are already there, so this also
+-- adopts databases set up by earlier versions or by postgresql-setup.sql.
+
+CREATE TABLE IF NOT EXISTS users (
+    id SERIAL PRIMARY KEY,
+    username VARCHAR(50) UNIQUE NOT NULL,
+    password VARCHAR(100) NOT NULL,
+    role VARCHAR(20) NOT NULL DEFAULT 'staff',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS doctors (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    specialization VARCHAR(100),
+    phone VARCHAR(20),
+    email VARCHAR(100),
+    active BOOLEAN DEFAULT true,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS patients (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    phone VARCHAR(20),
+    email VARCHAR(100),
+    address TEXT,
+    date_of_birth DATE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS appointments (
+    id SERIAL PRIMARY KEY,
+    patient_name VARCHAR(100) NOT NULL,
+    doctor_name VARCHAR(100) NOT NULL,
+    appointment_date DATE NOT NULL,
+    appointment_time TIME NOT NULL,
+    status VARCHAR(20) DEFAULT 'scheduled',
+    notes TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments(appointment_date);
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor ON appointments(doctor_name);
+CREATE INDEX IF NOT EXISTS idx_appointments_status ON appointments(status);
+
+-- Default users and doctors
+INSERT INTO users (username, password, role) VALUES
+    ('admin', 'clinic123', 'admin'),
+    ('staff', 'staff123', 'staff')
+ON CONFLICT (username) DO NOTHING;
+
+INSERT INTO doctors (name, specialization)
+SELECT name, specialization FROM (VALUES
+    ('Dr. Smith', 'General Medicine'),
+    ('Dr. Johnson', 'Cardiology'),
+    ('Dr. Williams', 'Pediatrics'),
+    ('Dr. Brown', 'Orthopedics'),
+    ('Dr. Davis', 'Dermatology')
+) AS defaults(name, specialization)
+WHERE NOT EXISTS (SELECT 1 FROM doctors);
@@ -0,0 +1,14 @@
+-- The desktop apps store a phone number with each appointment
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS patient_phone VARCHAR(20);
+
+-- Conflict checks and per-doctor schedules: doctor, then the slot
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_slot ON appointments(doctor_name, appointment_date, appointment_time);
+-- Listings in date and time order, and date-range queries
+CREATE INDEX IF NOT EXISTS idx_appointments_date_time ON appointments(appointment_date, appointment_time);
+-- Most recent bookings first
+CREATE INDEX IF NOT EXISTS idx_appointments_created_at ON appointments(created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_doctors_active ON doctors(active);
+
+-- Leading columns of the composite indexes above, so only extra write cost
+DROP INDEX IF EXISTS idx_appointments_doctor;
+DROP INDEX IF EXISTS idx_appointments_date;
@@ -0,0 +1,32 @@
+-- At most one active appointment per doctor and slot; PostgreSQLManager.bookIfFree()
+-- relies on it.
+--
+-- Databases from before it can hold double bookings, which would keep the index
+-- from being built. In each double-booked slot the first booking, the lowest id,
+-- is kept and the others are cancelled, with a note on the appointment and a
+-- warning per appointment in the migration output, so staff can contact those
+-- patients.
+DO $$
+DECLARE
+    extra RECORD;
+BEGIN
+    FOR extra IN
+        SELECT id, patient_name, doctor_name, appointment_date, appointment_time FROM (
+            SELECT id, patient_name, doctor_name, appointment_date, appointment_time,
+                   ROW_NUMBER() OVER (PARTITION BY doctor_name, appointment_date, appointment_time
+                                      ORDER BY id) AS booking
+            FROM appointments WHERE status <> 'cancelled'
+        ) active WHERE booking > 1 ORDER BY id
+    LOOP
+        UPDATE appointments
+        SET status = 'cancelled',
+            notes = concat_ws(E'\n', notes, 'Cancelled as a double booking when the schema was upgraded')
+        WHERE id = extra.id;
+        RAISE WARNING 'Cancelled double booking %: % with % on % at %', extra.id, extra.patient_name,
+            extra.doctor_name, extra.appointment_date, extra.appointment_time;
+    END LOOP;
+END;
+$$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_appointments_active_slot
+    ON appointments(doctor_name, appointment_date, appointment_time) WHERE status <> 'cancelled';
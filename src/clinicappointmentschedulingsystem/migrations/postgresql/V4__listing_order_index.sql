@@ -0,0 +1,5 @@
+-- Appointment listings page newest first by (date, time, id);
+-- PostgreSQLManager.getAppointmentsPage() seeks to its cursor in this index.
+-- It also serves the date and date-range queries the old index did.
+CREATE INDEX IF NOT EXISTS idx_appointments_listing ON appointments(appointment_date, appointment_time, id);
+DROP INDEX IF EXISTS idx_appointments_date_time;
@@ -0,0 +1,64 @@
+-- Appointments refer to their doctor and patient by id. Listings read the
+-- names from doctors and patients, so renaming a doctor is one row; the
+-- doctor_name and patient_name columns stay as written at booking time for
+-- the desktop apps that still read and write them.
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS doctor_id INTEGER REFERENCES doctors(id);
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS patient_id INTEGER REFERENCES patients(id);
+
+CREATE INDEX IF NOT EXISTS idx_doctors_name ON doctors(name);
+CREATE INDEX IF NOT EXISTS idx_patients_name ON patients(name);
+
+-- Doctors only found in old appointments are kept, inactive; patients
+-- get one row per name, with a phone number booked under it
+INSERT INTO doctors (name, active)
+SELECT DISTINCT a.doctor_name, false FROM appointments a
+WHERE NOT EXISTS (SELECT 1 FROM doctors d WHERE d.name = a.doctor_name);
+
+INSERT INTO patients (name, phone)
+SELECT a.patient_name, MAX(a.patient_phone) FROM appointments a
+WHERE NOT EXISTS (SELECT 1 FROM patients p WHERE p.name = a.patient_name)
+GROUP BY a.patient_name;
+
+UPDATE appointments a SET doctor_id = d.id
+FROM (SELECT name, MIN(id) AS id FROM doctors GROUP BY name) d
+WHERE a.doctor_id IS NULL AND d.name = a.doctor_name;
+
+UPDATE appointments a SET patient_id = p.id
+FROM (SELECT name, MIN(id) AS id FROM patients GROUP BY name) p
+WHERE a.patient_id IS NULL AND p.name = a.patient_name;
+
+ALTER TABLE appointments ALTER COLUMN doctor_id SET NOT NULL;
+ALTER TABLE appointments ALTER COLUMN patient_id SET NOT NULL;
+
+-- Rows inserted with names only, e.g. by FinalDatabaseApp, get their ids
+-- the same way, so every row is seen by the id-based conflict checks
+CREATE OR REPLACE FUNCTION appointments_fill_keys() RETURNS trigger AS $$
+BEGIN
+    IF NEW.doctor_id IS NULL THEN
+        SELECT MIN(id) INTO NEW.doctor_id FROM doctors WHERE name = NEW.doctor_name;
+        IF NEW.doctor_id IS NULL THEN
+            INSERT INTO doctors (name, active) VALUES (NEW.doctor_name, false) RETURNING id INTO NEW.doctor_id;
+        END IF;
+    END IF;
+    IF NEW.patient_id IS NULL THEN
+        SELECT MIN(id) INTO NEW.patient_id FROM patients WHERE name = NEW.patient_name;
+        IF NEW.patient_id IS NULL THEN
+            INSERT INTO patients (name, phone) VALUES (NEW.patient_name, NEW.patient_phone) RETURNING id INTO NEW.patient_id;
+        END IF;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_appointments_fill_keys ON appointments;
+CREATE TRIGGER trg_appointments_fill_keys BEFORE INSERT ON appointments
+    FOR EACH ROW EXECUTE PROCEDURE appointments_fill_keys();
+
+-- The slot indexes move from the doctor's name to the id
+DROP INDEX IF EXISTS idx_appointments_doctor_slot;
+CREATE INDEX idx_appointments_doctor_slot ON appointments(doctor_id, appointment_date, appointment_time);
+DROP INDEX IF EXISTS idx_appointments_active_slot;
+CREATE UNIQUE INDEX idx_appointments_active_slot
+    ON appointments(doctor_id, appointment_date, appointment_time) WHERE status <> 'cancelled';
+-- A patient's appointments, and deletes from patients checking the key
+CREATE INDEX IF NOT EXISTS idx_appointments_patient ON appointments(patient_id);
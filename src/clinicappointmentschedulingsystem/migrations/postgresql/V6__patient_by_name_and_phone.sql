@@ -0,0 +1,39 @@
+-- Bookings find their patient by name and phone number, so two patients
+-- who share a name are no longer merged into one.
+--
+-- A patient who is not on file yet is added by an AFTER INSERT trigger,
+-- which only fires for rows that went in: a booking that ON CONFLICT DO
+-- NOTHING skips no longer leaves a patient row behind, as the BEFORE
+-- trigger from V5 did. patient_id is null until that trigger runs, at the
+-- end of the inserting statement, so it can no longer be NOT NULL.
+ALTER TABLE appointments ALTER COLUMN patient_id DROP NOT NULL;
+
+CREATE OR REPLACE FUNCTION appointments_fill_keys() RETURNS trigger AS $$
+BEGIN
+    IF NEW.doctor_id IS NULL THEN
+        SELECT MIN(id) INTO NEW.doctor_id FROM doctors WHERE name = NEW.doctor_name;
+        IF NEW.doctor_id IS NULL THEN
+            INSERT INTO doctors (name, active) VALUES (NEW.doctor_name, false) RETURNING id INTO NEW.doctor_id;
+        END IF;
+    END IF;
+    IF NEW.patient_id IS NULL THEN
+        SELECT MIN(id) INTO NEW.patient_id FROM patients
+        WHERE name = NEW.patient_name AND phone IS NOT DISTINCT FROM NEW.patient_phone;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION appointments_add_patient() RETURNS trigger AS $$
+DECLARE
+    added INTEGER;
+BEGIN
+    INSERT INTO patients (name, phone) VALUES (NEW.patient_name, NEW.patient_phone) RETURNING id INTO added;
+    UPDATE appointments SET patient_id = added WHERE id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_appointments_add_patient ON appointments;
+CREATE TRIGGER trg_appointments_add_patient AFTER INSERT ON appointments
+    FOR EACH ROW WHEN (NEW.patient_id IS NULL) EXECUTE PROCEDURE appointments_add_patient();
@@ -0,0 +1,53 @@
+-- Schema as DatabaseManager created it before migrations existed.
+-- Every statement tolerates objects that are already there, so this also
+-- adopts clinic.db files created by earlier versions.
+
+CREATE TABLE IF NOT EXISTS users (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    username TEXT UNIQUE NOT NULL,
+    password TEXT NOT NULL,
+    role TEXT NOT NULL DEFAULT 'staff',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS doctors (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    name TEXT NOT NULL,
+    specialization TEXT,
+    phone TEXT,
+    email TEXT,
+    active BOOLEAN DEFAULT 1
+);
+
+CREATE TABLE IF NOT EXISTS patients (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    name TEXT NOT NULL,
+    phone TEXT,
+    email TEXT,
+    address TEXT,
+    date_of_birth DATE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS appointments (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    patient_name TEXT NOT NULL,
+    doctor_name TEXT NOT NULL,
+    appointment_date DATE NOT NULL,
+    appointment_time TEXT NOT NULL,
+    status TEXT DEFAULT 'scheduled',
+    notes TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Default user and doctors
+INSERT OR IGNORE INTO users (username, password, role) VALUES ('admin', 'clinic123', 'admin');
+
+INSERT INTO doctors (name, specialization)
+SELECT column1, column2 FROM (VALUES
+    ('Dr. Smith', 'General Medicine'),
+    ('Dr. Johnson', 'Cardiology'),
+    ('Dr. Williams', 'Pediatrics'),
+    ('Dr. Brown', 'Orthopedics')
+)
+WHERE NOT EXISTS (SELECT 1 FROM doctors);
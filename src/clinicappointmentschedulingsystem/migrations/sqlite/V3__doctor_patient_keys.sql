@@ -0,0 +1,45 @@
+-- Appointments refer to their doctor and patient by id. Listings read the
+-- names from doctors and patients, so renaming a doctor is one row; the
+-- doctor_name and patient_name columns stay as written at booking time.
+-- SQLite cannot add NOT NULL to an existing column; the trigger below
+-- fills the ids of every new row instead.
+ALTER TABLE appointments ADD COLUMN doctor_id INTEGER REFERENCES doctors(id);
+ALTER TABLE appointments ADD COLUMN patient_id INTEGER REFERENCES patients(id);
+
+CREATE INDEX IF NOT EXISTS idx_doctors_name ON doctors(name);
+CREATE INDEX IF NOT EXISTS idx_patients_name ON patients(name);
+
+-- Doctors only found in old appointments are kept, inactive; patients
+-- get one row per name, with a phone number booked under it
+INSERT INTO doctors (name, active)
+SELECT DISTINCT a.doctor_name, 0 FROM appointments a
+WHERE NOT EXISTS (SELECT 1 FROM doctors d WHERE d.name = a.doctor_name);
+
+INSERT INTO patients (name, phone)
+SELECT a.patient_name, MAX(a.patient_phone) FROM appointments a
+WHERE NOT EXISTS (SELECT 1 FROM patients p WHERE p.name = a.patient_name)
+GROUP BY a.patient_name;
+
+UPDATE appointments SET
+    doctor_id = (SELECT MIN(d.id) FROM doctors d WHERE d.name = appointments.doctor_name),
+    patient_id = (SELECT MIN(p.id) FROM patients p WHERE p.name = appointments.patient_name)
+WHERE doctor_id IS NULL OR patient_id IS NULL;
+
+-- Rows inserted with names only get their ids the same way
+CREATE TRIGGER IF NOT EXISTS trg_appointments_fill_keys AFTER INSERT ON appointments
+WHEN NEW.doctor_id IS NULL OR NEW.patient_id IS NULL
+BEGIN
+    INSERT INTO doctors (name, active) SELECT NEW.doctor_name, 0
+    WHERE NEW.doctor_id IS NULL AND NOT EXISTS (SELECT 1 FROM doctors WHERE name = NEW.doctor_name);
+    INSERT INTO patients (name, phone) SELECT NEW.patient_name, NEW.patient_phone
+    WHERE NEW.patient_id IS NULL AND NOT EXISTS (SELECT 1 FROM patients WHERE name = NEW.patient_name);
+    UPDATE appointments SET
+        doctor_id = COALESCE(doctor_id, (SELECT MIN(id) FROM doctors WHERE name = NEW.doctor_name)),
+        patient_id = COALESCE(patient_id, (SELECT MIN(id) FROM patients WHERE name = NEW.patient_name))
+    WHERE id = NEW.id;
+END;
+
+-- The slot index moves from the doctor's name to the id
+DROP INDEX IF EXISTS idx_appointments_doctor_slot;
+CREATE INDEX idx_appointments_doctor_slot ON appointments(doctor_id, appointment_date, appointment_time);
+CREATE INDEX IF NOT EXISTS idx_appointments_patient ON appointments(patient_id);
@@ -0,0 +1,20 @@
+-- Bookings find their patient by name and phone number, so two patients
+-- who share a name are no longer merged into one. The trigger from V3
+-- already runs after the insert, so it only adds patients for bookings
+-- that went in; it now matches on the phone number too.
+DROP TRIGGER IF EXISTS trg_appointments_fill_keys;
+
+CREATE TRIGGER trg_appointments_fill_keys AFTER INSERT ON appointments
+WHEN NEW.doctor_id IS NULL OR NEW.patient_id IS NULL
+BEGIN
+    INSERT INTO doctors (name, active) SELECT NEW.doctor_name, 0
+    WHERE NEW.doctor_id IS NULL AND NOT EXISTS (SELECT 1 FROM doctors WHERE name = NEW.doctor_name);
+    INSERT INTO patients (name, phone) SELECT NEW.patient_name, NEW.patient_phone
+    WHERE NEW.patient_id IS NULL
+        AND NOT EXISTS (SELECT 1 FROM patients WHERE name = NEW.patient_name AND phone IS NEW.patient_phone);
+    UPDATE appointments SET
+        doctor_id = COALESCE(doctor_id, (SELECT MIN(id) FROM doctors WHERE name = NEW.doctor_name)),
+        patient_id = COALESCE(patient_id,
+                (SELECT MIN(id) FROM patients WHERE name = NEW.patient_name AND phone IS NEW.patient_phone))
+    WHERE id = NEW.id;
+END;
@@ -1,53 +1,41 @@
 package cllinicappointmentschedulingsystem;
 
+import clinicappointmentschedulingsystem.Appointment;
+import clinicappointmentschedulingsystem.AppointmentRepositories;
+import clinicappointmentschedulingsystem.AppointmentRepository;
+import clinicappointmentschedulingsystem.AppointmentRequest;
+import clinicappointmentschedulingsystem.BookingResult;
+import clinicappointmentschedulingsystem.BookingService;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
-import java.sql.*;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class DatabaseClinicApp extends Application {
     
-    // Database connection parameters - UPDATED WITH YOUR CREDENTIALS
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/clinic_db";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "1234";
+    private static final int RECENT_APPOINTMENTS = 10;
     
-    // Test database connection
-    private boolean testDatabaseConnection() {
-        try {
-            Class.forName("org.postgresql.Driver");
-            Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            conn.close();
-            return true;
-        } catch (ClassNotFoundException e) {
-            System.err.println("PostgreSQL JDBC Driver not found: " + e.getMessage());
-            return false;
-        } catch (SQLException e) {
-            System.err.println("Database connection failed: " + e.getMessage());
-            return false;
-        }
-    }
+    // PostgreSQL through the shared repository, with its settings from
+    // database-config.properties; opened in the background at startup
+    private CompletableFuture<AppointmentRepository> repository;
     
     @Override
     public void start(Stage primaryStage) {
+        repository = BookingService.supply(() -> AppointmentRepositories.open("postgresql"));
         showLoginScreen(primaryStage);
     }
 
-    private Connection getConnection() throws SQLException {
-        try {
-            Class.forName("org.postgresql.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("PostgreSQL JDBC Driver not found. Please add postgresql-xx.x.x.jar to your classpath.", e);
-        }
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    // Runs a repository call on a background thread once it is open
+    private <T> CompletableFuture<T> onRepository(Function<AppointmentRepository, T> call) {
+        return repository.thenCompose(opened -> BookingService.supply(() -> call.apply(opened)));
     }
 
     private void showLoginScreen(Stage stage) {
@@ -96,14 +84,18 @@ public class DatabaseClinicApp extends Application {
             credentialsLabel
         );
 
-        // Test database connection on startup
-        if (testDatabaseConnection()) {
-            messageLabel.setText("✅ Database connected successfully!");
-            messageLabel.setStyle("-fx-text-fill: green;");
-        } else {
-            messageLabel.setText("❌ Database connection failed. Check console for details.");
-            messageLabel.setStyle("-fx-text-fill: red;");
-        }
+        // Report where appointments will be stored once the repository is open,
+        // off the FX thread like every data call in this app; results come back
+        // via Platform.runLater. An unreachable database falls back to files
+        onRepository(AppointmentRepository::getBackendName).whenCompleteAsync((backend, error) -> {
+            if (error == null) {
+                messageLabel.setText("✅ Connected to " + backend);
+                messageLabel.setStyle("-fx-text-fill: green;");
+            } else {
+                messageLabel.setText("❌ Database connection failed. Check console for details.");
+                messageLabel.setStyle("-fx-text-fill: red;");
+            }
+        }, Platform::runLater);
 
         // Login button action
         loginBtn.setOnAction(e -> {
@@ -247,27 +239,40 @@ public class DatabaseClinicApp extends Application {
                 return;
             }
 
-            if (saveAppointment(patient, phone, doctor, date, time, notes)) {
-                outputArea.setText("✅ APPOINTMENT SCHEDULED SUCCESSFULLY!\n\n" +
-                                 "📋 Details saved to database:\n" +
-                                 "👤 Patient: " + patient + "\n" +
-                                 "📞 Phone: " + (phone.isEmpty() ? "Not provided" : phone) + "\n" +
-                                 "👨‍⚕️ Doctor: " + doctor + "\n" +
-                                 "📅 Date: " + date + "\n" +
-                                 "🕐 Time: " + time + "\n" +
-                                 "📝 Notes: " + (notes.isEmpty() ? "None" : notes) + "\n\n" +
-                                 "Click 'REFRESH APPOINTMENTS' to see all appointments.");
-
-                // Clear form
-                patientField.clear();
-                phoneField.clear();
-                doctorCombo.setValue(null);
-                datePicker.setValue(LocalDate.now());
-                timeField.clear();
-                notesArea.clear();
-            } else {
-                outputArea.setText("❌ Error saving appointment to database. Please try again.");
-            }
+            scheduleBtn.setDisable(true);
+            outputArea.setText("⏳ Saving appointment to database...");
+            AppointmentRequest request = new AppointmentRequest(patient, phone.isEmpty() ? null : phone, doctor,
+                    date, time, notes.isEmpty() ? null : notes);
+            onRepository(store -> store.tryBook(request)).whenCompleteAsync((result, error) -> {
+                scheduleBtn.setDisable(false);
+                if (error != null) {
+                    System.err.println("Error saving appointment: " + error.getMessage());
+                }
+                if (result == BookingResult.CONFLICT) {
+                    outputArea.setText("❌ " + doctor + " is already booked at " + time + " on " + date
+                            + ". Please choose another time.");
+                } else if (result == BookingResult.BOOKED) {
+                    outputArea.setText("✅ APPOINTMENT SCHEDULED SUCCESSFULLY!\n\n" +
+                                     "📋 Details saved to database:\n" +
+                                     "👤 Patient: " + patient + "\n" +
+                                     "📞 Phone: " + (phone.isEmpty() ? "Not provided" : phone) + "\n" +
+                                     "👨‍⚕️ Doctor: " + doctor + "\n" +
+                                     "📅 Date: " + date + "\n" +
+                                     "🕐 Time: " + time + "\n" +
+                                     "📝 Notes: " + (notes.isEmpty() ? "None" : notes) + "\n\n" +
+                                     "Click 'REFRESH APPOINTMENTS' to see all appointments.");
+
+                    // Clear form
+                    patientField.clear();
+                    phoneField.clear();
+                    doctorCombo.setValue(null);
+                    datePicker.setValue(LocalDate.now());
+                    timeField.clear();
+                    notesArea.clear();
+                } else {
+                    outputArea.setText("❌ Error saving appointment to database. Please try again.");
+                }
+            }, Platform::runLater);
         });
 
         // Clear button action
@@ -298,111 +303,46 @@ public class DatabaseClinicApp extends Application {
     }
 
     private void loadDoctors(ComboBox<String> doctorCombo) {
-        try (Connection conn = getConnection()) {
-            String query = "SELECT name, specialization FROM doctors ORDER BY name";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery();
-
-            List<String> doctors = new ArrayList<>();
-            while (rs.next()) {
-                String doctorInfo = rs.getString("name") + " - " + rs.getString("specialization");
-                doctors.add(doctorInfo);
-            }
-
+        onRepository(AppointmentRepository::getAllDoctors).thenAcceptAsync(doctors -> {
             doctorCombo.getItems().clear();
             doctorCombo.getItems().addAll(doctors);
-
-        } catch (SQLException e) {
-            doctorCombo.getItems().clear();
-            doctorCombo.getItems().add("Error loading doctors: " + e.getMessage());
-        }
-    }
-
-    private boolean saveAppointment(String patient, String phone, String doctor, LocalDate date, String time, String notes) {
-        System.out.println("Attempting to save appointment...");
-        System.out.println("Patient: " + patient);
-        System.out.println("Doctor: " + doctor);
-        System.out.println("Date: " + date);
-        System.out.println("Time: " + time);
-        
-        try (Connection conn = getConnection()) {
-            System.out.println("Database connection established successfully");
-            
-            String query = "INSERT INTO appointments (patient_name, patient_phone, doctor_name, appointment_date, appointment_time, notes) VALUES (?, ?, ?, ?, ?, ?)";
-            System.out.println("Executing query: " + query);
-            
-            PreparedStatement stmt = conn.prepareStatement(query);
-
-            stmt.setString(1, patient);
-            stmt.setString(2, phone.isEmpty() ? null : phone);
-            stmt.setString(3, doctor);
-            stmt.setDate(4, Date.valueOf(date));
-            stmt.setTime(5, Time.valueOf(LocalTime.parse(time)));
-            stmt.setString(6, notes.isEmpty() ? null : notes);
-
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("Rows affected: " + rowsAffected);
-            
-            if (rowsAffected > 0) {
-                System.out.println("Appointment saved successfully!");
-                return true;
-            } else {
-                System.out.println("No rows were inserted");
-                return false;
-            }
-
-        } catch (SQLException e) {
-            System.err.println("SQL Error saving appointment: " + e.getMessage());
-            System.err.println("SQL State: " + e.getSQLState());
-            System.err.println("Error Code: " + e.getErrorCode());
-            e.printStackTrace();
-            return false;
-        } catch (Exception e) {
-            System.err.println("General error saving appointment: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
+        }, Platform::runLater);
     }
 
     private void loadAppointments(TextArea outputArea) {
-        try (Connection conn = getConnection()) {
-            String query = "SELECT * FROM appointments ORDER BY appointment_date DESC, appointment_time DESC LIMIT 10";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery();
-
-            StringBuilder output = new StringBuilder();
-            output.append("=== RECENT APPOINTMENTS FROM DATABASE ===\n\n");
-
-            int count = 0;
-            while (rs.next()) {
-                count++;
-                output.append(String.format("📋 Appointment #%d\n", rs.getInt("id")));
-                output.append(String.format("👤 Patient: %s\n", rs.getString("patient_name")));
-                output.append(String.format("📞 Phone: %s\n", rs.getString("patient_phone") != null ? rs.getString("patient_phone") : "Not provided"));
-                output.append(String.format("👨‍⚕️ Doctor: %s\n", rs.getString("doctor_name")));
-                output.append(String.format("📅 Date: %s\n", rs.getDate("appointment_date")));
-                output.append(String.format("🕐 Time: %s\n", rs.getTime("appointment_time").toString().substring(0, 5)));
-                output.append(String.format("📝 Status: %s\n", rs.getString("status")));
-                String notes = rs.getString("notes");
-                if (notes != null && !notes.trim().isEmpty()) {
-                    output.append(String.format("💬 Notes: %s\n", notes));
-                }
-                output.append("─────────────────────────────────────\n\n");
-            }
+        onRepository(store -> renderAppointments(store.getAppointmentsPage(RECENT_APPOINTMENTS, null)
+                .getAppointments()))
+                .thenAcceptAsync(outputArea::setText, Platform::runLater);
+    }
 
-            if (count == 0) {
-                output.append("No appointments found in database.\n");
-                output.append("Schedule your first appointment using the form above!\n");
-            } else {
-                output.append(String.format("Showing %d most recent appointments.\n", count));
+    // Runs on a background thread; returns the text for the output area
+    private String renderAppointments(List<Appointment> appointments) {
+        StringBuilder output = new StringBuilder();
+        output.append("=== RECENT APPOINTMENTS FROM DATABASE ===\n\n");
+
+        for (Appointment appointment : appointments) {
+            output.append(String.format("📋 Appointment #%d\n", appointment.getId()));
+            output.append(String.format("👤 Patient: %s\n", appointment.getPatientName()));
+            output.append(String.format("📞 Phone: %s\n", appointment.getPatientPhone() != null ? appointment.getPatientPhone() : "Not provided"));
+            output.append(String.format("👨‍⚕️ Doctor: %s\n", appointment.getDoctorName()));
+            output.append(String.format("📅 Date: %s\n", appointment.getAppointmentDate()));
+            output.append(String.format("🕐 Time: %s\n", appointment.getAppointmentTime()));
+            output.append(String.format("📝 Status: %s\n", appointment.getStatus()));
+            String notes = appointment.getNotes();
+            if (notes != null && !notes.trim().isEmpty()) {
+                output.append(String.format("💬 Notes: %s\n", notes));
             }
+            output.append("─────────────────────────────────────\n\n");
+        }
 
-            outputArea.setText(output.toString());
-
-        } catch (SQLException e) {
-            outputArea.setText("❌ Error loading appointments from database:\n" + e.getMessage() + 
-                             "\n\nPlease check your database connection settings.");
+        if (appointments.isEmpty()) {
+            output.append("No appointments found in database.\n");
+            output.append("Schedule your first appointment using the form above!\n");
+        } else {
+            output.append(String.format("Showing %d most recent appointments.\n", appointments.size()));
         }
+
+        return output.toString();
     }
 
     public static void main(String[] args) {
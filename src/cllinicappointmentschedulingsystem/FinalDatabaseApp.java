@@ -1,65 +1,48 @@
 package cllinicappointmentschedulingsystem;
 
+import clinicappointmentschedulingsystem.Appointment;
+import clinicappointmentschedulingsystem.AppointmentPage;
+import clinicappointmentschedulingsystem.AppointmentRepositories;
+import clinicappointmentschedulingsystem.AppointmentRepository;
+import clinicappointmentschedulingsystem.AppointmentRequest;
+import clinicappointmentschedulingsystem.BookingResult;
+import clinicappointmentschedulingsystem.BookingService;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
-import java.sql.*;
 import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class FinalDatabaseApp extends Application {
     
-    // Database connection with your credentials
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/clinic_db";
-    private static final String DB_USER = "postgres";
-    private static final String DB_PASSWORD = "1234";
+    private static final int PAGE_SIZE = 10;
+    
+    // PostgreSQL through the shared repository, with its settings from
+    // database-config.properties; opened in the background at startup
+    private CompletableFuture<AppointmentRepository> repository;
+    // Where the page on screen ends; NEXT PAGE continues after it. Only used on the FX thread
+    private String pageCursor;
     
     @Override
     public void start(Stage primaryStage) {
-        // Initialize database tables first
-        initializeDatabase();
+        // Open the repository, which brings the schema up to date with its
+        // migrations, in the background while the login screen shows.
+        // Every database call in this app runs through BookingService so the
+        // FX thread never waits on PostgreSQL; results come back via Platform.runLater
+        repository = BookingService.supply(() -> AppointmentRepositories.open("postgresql"));
         showLoginScreen(primaryStage);
     }
 
-    private void initializeDatabase() {
-        try (Connection conn = getConnection()) {
-            // Create appointments table if it doesn't exist
-            String createTable = """
-                CREATE TABLE IF NOT EXISTS appointments (
-                    id SERIAL PRIMARY KEY,
-                    patient_name VARCHAR(100) NOT NULL,
-                    patient_phone VARCHAR(20),
-                    doctor_name VARCHAR(100) NOT NULL,
-                    appointment_date DATE NOT NULL,
-                    appointment_time TIME NOT NULL,
-                    status VARCHAR(20) DEFAULT 'SCHEDULED',
-                    notes TEXT,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-            """;
-            
-            Statement stmt = conn.createStatement();
-            stmt.execute(createTable);
-            System.out.println("✅ Database initialized successfully");
-            
-        } catch (SQLException e) {
-            System.err.println("❌ Database initialization failed: " + e.getMessage());
-        }
-    }
-
-    private Connection getConnection() throws SQLException {
-        try {
-            Class.forName("org.postgresql.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("PostgreSQL JDBC Driver not found", e);
-        }
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    // Runs a repository call on a background thread once it is open
+    private <T> CompletableFuture<T> onRepository(Function<AppointmentRepository, T> call) {
+        return repository.thenCompose(opened -> BookingService.supply(() -> call.apply(opened)));
     }
 
     private void showLoginScreen(Stage stage) {
@@ -94,13 +77,18 @@ public class FinalDatabaseApp extends Application {
         credentialsLabel.setStyle("-fx-text-alignment: center; -fx-font-size: 12px;");
 
         // Test database connection on startup
-        try (Connection conn = getConnection()) {
-            messageLabel.setText("✅ Database connected successfully!");
-            messageLabel.setStyle("-fx-text-fill: green;");
-        } catch (SQLException e) {
-            messageLabel.setText("❌ Database connection failed: " + e.getMessage());
-            messageLabel.setStyle("-fx-text-fill: red;");
-        }
+        messageLabel.setText("⏳ Connecting to database...");
+        messageLabel.setStyle("-fx-text-fill: #666;");
+        // An unreachable database falls back to files, which the message names
+        onRepository(AppointmentRepository::getBackendName).whenCompleteAsync((backend, error) -> {
+            if (error == null) {
+                messageLabel.setText("✅ Connected to " + backend);
+                messageLabel.setStyle("-fx-text-fill: green;");
+            } else {
+                messageLabel.setText("❌ Database connection failed: " + error.getMessage());
+                messageLabel.setStyle("-fx-text-fill: red;");
+            }
+        }, Platform::runLater);
 
         HBox buttonBox = new HBox(15);
         buttonBox.setAlignment(Pos.CENTER);
@@ -216,6 +204,11 @@ public class FinalDatabaseApp extends Application {
         refreshBtn.setPrefWidth(200);
         refreshBtn.setStyle("-fx-background-color: #2196f3; -fx-text-fill: white; -fx-font-weight: bold;");
 
+        Button nextPageBtn = new Button("⏭️ NEXT PAGE");
+        nextPageBtn.setPrefWidth(150);
+        nextPageBtn.setDisable(true);
+        nextPageBtn.setStyle("-fx-background-color: #2196f3; -fx-text-fill: white; -fx-font-weight: bold;");
+
         Button logoutBtn = new Button("🚪 LOGOUT");
         logoutBtn.setPrefWidth(100);
         logoutBtn.setStyle("-fx-background-color: #f44336; -fx-text-fill: white; -fx-font-weight: bold;");
@@ -248,10 +241,10 @@ public class FinalDatabaseApp extends Application {
 
         HBox buttonBox = new HBox(15);
         buttonBox.setAlignment(Pos.CENTER);
-        buttonBox.getChildren().addAll(scheduleBtn, clearBtn, refreshBtn, logoutBtn);
+        buttonBox.getChildren().addAll(scheduleBtn, clearBtn, refreshBtn, nextPageBtn, logoutBtn);
 
         // Load appointments on startup
-        loadAppointmentsFromDatabase(outputArea);
+        loadAppointmentsFromDatabase(outputArea, nextPageBtn, false);
 
         // Schedule button action - SAVES TO DATABASE
         scheduleBtn.setOnAction(e -> {
@@ -273,29 +266,42 @@ public class FinalDatabaseApp extends Application {
             }
 
             // Save to PostgreSQL database
-            if (saveAppointmentToDatabase(patient, phone, doctor, date, time, notes)) {
-                outputArea.setText("✅ APPOINTMENT SAVED TO DATABASE SUCCESSFULLY!\n\n" +
-                                 "💾 Saved to PostgreSQL:\n" +
-                                 "👤 Patient: " + patient + "\n" +
-                                 "📞 Phone: " + (phone.isEmpty() ? "Not provided" : phone) + "\n" +
-                                 "👨‍⚕️ Doctor: " + doctor + "\n" +
-                                 "📅 Date: " + date + "\n" +
-                                 "🕐 Time: " + time + "\n" +
-                                 "📝 Notes: " + (notes.isEmpty() ? "None" : notes) + "\n\n" +
-                                 "🎉 Data is now permanently stored in your database!\n" +
-                                 "Click 'LOAD FROM DATABASE' to see all appointments.");
-
-                // Clear form
-                patientField.clear();
-                phoneField.clear();
-                doctorCombo.setValue(null);
-                datePicker.setValue(LocalDate.now());
-                timeField.clear();
-                notesArea.clear();
-            } else {
-                outputArea.setText("❌ ERROR: Failed to save appointment to database!\n" +
-                                 "Check console for error details.");
-            }
+            scheduleBtn.setDisable(true);
+            outputArea.setText("⏳ Saving appointment to database...");
+            AppointmentRequest request = new AppointmentRequest(patient, phone.isEmpty() ? null : phone, doctor,
+                    date, time, notes.isEmpty() ? null : notes);
+            onRepository(store -> store.tryBook(request)).whenCompleteAsync((result, error) -> {
+                scheduleBtn.setDisable(false);
+                if (error != null) {
+                    System.err.println("❌ Database error: " + error.getMessage());
+                }
+                if (result == BookingResult.CONFLICT) {
+                    outputArea.setText("❌ " + doctor + " is already booked at " + time + " on " + date
+                            + ". Please choose another time.");
+                } else if (result == BookingResult.BOOKED) {
+                    outputArea.setText("✅ APPOINTMENT SAVED TO DATABASE SUCCESSFULLY!\n\n" +
+                                     "💾 Saved to PostgreSQL:\n" +
+                                     "👤 Patient: " + patient + "\n" +
+                                     "📞 Phone: " + (phone.isEmpty() ? "Not provided" : phone) + "\n" +
+                                     "👨‍⚕️ Doctor: " + doctor + "\n" +
+                                     "📅 Date: " + date + "\n" +
+                                     "🕐 Time: " + time + "\n" +
+                                     "📝 Notes: " + (notes.isEmpty() ? "None" : notes) + "\n\n" +
+                                     "🎉 Data is now permanently stored in your database!\n" +
+                                     "Click 'LOAD FROM DATABASE' to see all appointments.");
+
+                    // Clear form
+                    patientField.clear();
+                    phoneField.clear();
+                    doctorCombo.setValue(null);
+                    datePicker.setValue(LocalDate.now());
+                    timeField.clear();
+                    notesArea.clear();
+                } else {
+                    outputArea.setText("❌ ERROR: Failed to save appointment to database!\n" +
+                                     "Check console for error details.");
+                }
+            }, Platform::runLater);
         });
 
         // Clear button action
@@ -310,7 +316,8 @@ public class FinalDatabaseApp extends Application {
         });
 
         // Refresh button action - LOADS FROM DATABASE
-        refreshBtn.setOnAction(e -> loadAppointmentsFromDatabase(outputArea));
+        refreshBtn.setOnAction(e -> loadAppointmentsFromDatabase(outputArea, nextPageBtn, false));
+        nextPageBtn.setOnAction(e -> loadAppointmentsFromDatabase(outputArea, nextPageBtn, true));
 
         // Logout button action
         logoutBtn.setOnAction(e -> showLoginScreen(stage));
@@ -323,92 +330,66 @@ public class FinalDatabaseApp extends Application {
             outputArea
         );
 
-        Scene appointmentScene = new Scene(mainBox, 750, 650);
+        Scene appointmentScene = new Scene(mainBox, 920, 650);
         stage.setTitle("Clinic System - Database Connected (PostgreSQL)");
         stage.setScene(appointmentScene);
         stage.centerOnScreen();
     }
 
-    private boolean saveAppointmentToDatabase(String patient, String phone, String doctor, LocalDate date, String time, String notes) {
-        System.out.println("💾 Saving appointment to PostgreSQL database...");
-        
-        try (Connection conn = getConnection()) {
-            String query = "INSERT INTO appointments (patient_name, patient_phone, doctor_name, appointment_date, appointment_time, notes) VALUES (?, ?, ?, ?, ?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(query);
-
-            stmt.setString(1, patient);
-            stmt.setString(2, phone.isEmpty() ? null : phone);
-            stmt.setString(3, doctor);
-            stmt.setDate(4, Date.valueOf(date));
-            stmt.setTime(5, Time.valueOf(LocalTime.parse(time)));
-            stmt.setString(6, notes.isEmpty() ? null : notes);
-
-            int rowsAffected = stmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                System.out.println("✅ Appointment saved successfully to database!");
-                return true;
-            } else {
-                System.out.println("❌ No rows were inserted");
-                return false;
+    private void loadAppointmentsFromDatabase(TextArea outputArea, Button nextPageBtn, boolean nextPage) {
+        outputArea.setText("⏳ Loading appointments from database...");
+        nextPageBtn.setDisable(true);
+        String after = nextPage ? pageCursor : null;
+        onRepository(store -> store.getAppointmentsPage(PAGE_SIZE, after)).whenCompleteAsync((page, error) -> {
+            if (error != null) {
+                System.err.println("❌ Database error: " + error.getMessage());
+                outputArea.setText("❌ Error loading appointments from database:\n" + error.getMessage() +
+                       "\n\nPlease check your database connection.");
+                return;
             }
-
-        } catch (SQLException e) {
-            System.err.println("❌ Database error: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
+            outputArea.setText(renderPage(page, after != null));
+            pageCursor = page.getNextCursor();
+            nextPageBtn.setDisable(!page.hasNext());
+        }, Platform::runLater);
     }
 
-    private void loadAppointmentsFromDatabase(TextArea outputArea) {
-        System.out.println("📋 Loading appointments from PostgreSQL database...");
-        
-        try (Connection conn = getConnection()) {
-            String query = "SELECT * FROM appointments ORDER BY created_at DESC LIMIT 10";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            ResultSet rs = stmt.executeQuery();
-
-            StringBuilder output = new StringBuilder();
-            output.append("=== APPOINTMENTS FROM POSTGRESQL DATABASE ===\n\n");
-
-            int count = 0;
-            while (rs.next()) {
-                count++;
-                output.append(String.format("💾 Database Record #%d\n", rs.getInt("id")));
-                output.append(String.format("👤 Patient: %s\n", rs.getString("patient_name")));
-                output.append(String.format("📞 Phone: %s\n", rs.getString("patient_phone") != null ? rs.getString("patient_phone") : "Not provided"));
-                output.append(String.format("👨‍⚕️ Doctor: %s\n", rs.getString("doctor_name")));
-                output.append(String.format("📅 Date: %s\n", rs.getDate("appointment_date")));
-                output.append(String.format("🕐 Time: %s\n", rs.getTime("appointment_time").toString().substring(0, 5)));
-                output.append(String.format("📝 Status: %s\n", rs.getString("status")));
-                String notes = rs.getString("notes");
-                if (notes != null && !notes.trim().isEmpty()) {
-                    output.append(String.format("💬 Notes: %s\n", notes));
-                }
-                Timestamp created = rs.getTimestamp("created_at");
-                if (created != null) {
-                    output.append(String.format("⏰ Created: %s\n", created.toString()));
-                }
-                output.append("─".repeat(50) + "\n\n");
+    // Newest first by (date, time, id); the repository's cursor picks up after the
+    // last row, so later pages come from the index rather than by skipping rows
+    private String renderPage(AppointmentPage page, boolean earlier) {
+        List<Appointment> appointments = page.getAppointments();
+        StringBuilder output = new StringBuilder();
+        output.append("=== APPOINTMENTS FROM POSTGRESQL DATABASE ===\n\n");
+
+        for (Appointment appointment : appointments) {
+            output.append(String.format("💾 Database Record #%d\n", appointment.getId()));
+            output.append(String.format("👤 Patient: %s\n", appointment.getPatientName()));
+            output.append(String.format("📞 Phone: %s\n", appointment.getPatientPhone() != null ? appointment.getPatientPhone() : "Not provided"));
+            output.append(String.format("👨‍⚕️ Doctor: %s\n", appointment.getDoctorName()));
+            output.append(String.format("📅 Date: %s\n", appointment.getAppointmentDate()));
+            output.append(String.format("🕐 Time: %s\n", appointment.getAppointmentTime()));
+            output.append(String.format("📝 Status: %s\n", appointment.getStatus()));
+            String notes = appointment.getNotes();
+            if (notes != null && !notes.trim().isEmpty()) {
+                output.append(String.format("💬 Notes: %s\n", notes));
             }
+            output.append("─".repeat(50) + "\n\n");
+        }
 
-            if (count == 0) {
-                output.append("No appointments found in database.\n");
-                output.append("Schedule your first appointment using the form above!\n\n");
-                output.append("🗄️ Database connection is working - ready to save appointments!");
-            } else {
-                output.append(String.format("📊 Showing %d most recent appointments from database.\n", count));
-                output.append("🎉 All data is permanently stored in PostgreSQL!");
+        if (appointments.isEmpty()) {
+            output.append("No appointments found in database.\n");
+            output.append("Schedule your first appointment using the form above!\n\n");
+            output.append("🗄️ Database connection is working - ready to save appointments!");
+        } else {
+            output.append(String.format("📊 Showing %d %s appointments from database.\n", appointments.size(),
+                    earlier ? "earlier" : "most recent"));
+            if (page.hasNext()) {
+                output.append("⏭️ Click 'NEXT PAGE' for older appointments.\n");
             }
-
-            outputArea.setText(output.toString());
-            System.out.println("✅ Loaded " + count + " appointments from database");
-
-        } catch (SQLException e) {
-            outputArea.setText("❌ Error loading appointments from database:\n" + e.getMessage() + 
-                             "\n\nPlease check your database connection.");
-            System.err.println("❌ Database error: " + e.getMessage());
+            output.append("🎉 All data is permanently stored in PostgreSQL!");
         }
+
+        System.out.println("✅ Loaded " + appointments.size() + " appointments from database");
+        return output.toString();
     }
 
     public static void main(String[] args) {